@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Class transformation: single threaded {@code apply(ClassInstance)} over every input class.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApplyBenchmark {
+	@State(Scope.Thread)
+	public static class ApplyState {
+		@Setup(Level.Trial)
+		public void setup() {
+			remapper = BenchmarkFixtures.newRemapper()
+					.keepInputData(true)
+					.build();
+			remapper.readInputs(BenchmarkFixtures.inputs());
+			remapper.refresh();
+
+			for (TinyRemapper.MrjState state : remapper.mrjStates.values()) {
+				remapper.mrjRefresh(state);
+
+				for (ClassInstance cls : state.classes.values()) {
+					if (cls.isInput) classes.add(cls);
+				}
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		TinyRemapper remapper;
+		final List<ClassInstance> classes = new ArrayList<>();
+	}
+
+	@Benchmark
+	public void apply(ApplyState state, Blackhole bh) {
+		for (ClassInstance cls : state.classes) {
+			bh.consume(state.remapper.apply(cls));
+		}
+	}
+}
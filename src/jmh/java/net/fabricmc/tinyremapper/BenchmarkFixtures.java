@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Shared benchmark inputs: the yarn 1.17 mappings and the module jars nested in the bundled fabric-api jar.
+ *
+ * <p>The fixtures are extracted once per JVM into a temporary directory that is removed on exit.
+ */
+final class BenchmarkFixtures {
+	static final String FROM = "intermediary";
+	static final String TO = "named";
+
+	static synchronized Path mappings() {
+		init();
+		return mappings;
+	}
+
+	/**
+	 * @return the yarn mappings converted with {@link TinyUtils#compileMappings}.
+	 */
+	static synchronized Path compiledMappings() {
+		init();
+
+		if (compiledMappings == null) {
+			try {
+				Path file = dir.resolve("mappings.bin");
+				file.toFile().deleteOnExit();
+				TinyUtils.compileMappings(TinyUtils.createTinyMappingProvider(mappings, FROM, TO), FROM, TO, file);
+				compiledMappings = file;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		return compiledMappings;
+	}
+
+	static synchronized Path[] inputs() {
+		init();
+		return inputs.clone();
+	}
+
+	static TinyRemapper.Builder newRemapper() {
+		return TinyRemapper.newRemapper()
+				.withMappings(TinyUtils.createTinyMappingProvider(mappings(), FROM, TO));
+	}
+
+	private static void init() {
+		if (dir != null) return;
+
+		try {
+			Path tmp = Files.createTempDirectory("tiny-remapper-jmh");
+			tmp.toFile().deleteOnExit();
+
+			Path mappingsFile = tmp.resolve("mappings.tiny.gz");
+			copy("mapping/yarn-1.17+build.9-v2.tiny.gz", mappingsFile);
+
+			List<Path> jars = new ArrayList<>();
+
+			try (ZipInputStream zis = new ZipInputStream(open("integration/bulk/fabric-api-0.35.1+1.17.jar"))) {
+				ZipEntry entry;
+
+				while ((entry = zis.getNextEntry()) != null) {
+					if (entry.isDirectory() || !entry.getName().endsWith(".jar")) continue;
+
+					String name = entry.getName();
+					Path file = tmp.resolve(name.substring(name.lastIndexOf('/') + 1));
+					file.toFile().deleteOnExit();
+					Files.copy(zis, file, StandardCopyOption.REPLACE_EXISTING);
+					jars.add(file);
+				}
+			}
+
+			Collections.sort(jars);
+
+			mappings = mappingsFile;
+			inputs = jars.toArray(new Path[0]);
+			dir = tmp;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void copy(String resource, Path dst) throws IOException {
+		dst.toFile().deleteOnExit();
+
+		try (InputStream is = open(resource)) {
+			Files.copy(is, dst, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static InputStream open(String resource) throws IOException {
+		InputStream ret = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(resource);
+		if (ret == null) throw new IOException("missing benchmark fixture "+resource);
+
+		return ret;
+	}
+
+	private static Path dir;
+	private static Path mappings;
+	private static Path compiledMappings;
+	private static Path[] inputs;
+}
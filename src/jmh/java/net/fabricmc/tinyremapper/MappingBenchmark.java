@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping loading: {@code loadMappings} of the yarn tiny v2 file or its compiled form into a fresh remapper.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+	@State(Scope.Thread)
+	public static class LoadState {
+		@Setup(Level.Invocation)
+		public void setup() {
+			remapper = BenchmarkFixtures.newRemapper().build();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		TinyRemapper remapper;
+	}
+
+	@State(Scope.Thread)
+	public static class CompiledLoadState {
+		@Setup(Level.Invocation)
+		public void setup() {
+			remapper = TinyRemapper.newRemapper()
+					.withMappings(TinyUtils.createCompiledMappingProvider(BenchmarkFixtures.compiledMappings(), BenchmarkFixtures.FROM, BenchmarkFixtures.TO))
+					.build();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		TinyRemapper remapper;
+	}
+
+	@Benchmark
+	public int loadMappings(LoadState state) {
+		state.remapper.loadMappings();
+
+		return state.remapper.memberMappings.size();
+	}
+
+	@Benchmark
+	public int loadCompiledMappings(CompiledLoadState state) {
+		state.remapper.loadMappings();
+
+		return state.remapper.memberMappings.size();
+	}
+}
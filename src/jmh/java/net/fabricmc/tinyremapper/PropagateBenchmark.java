@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hierarchy processing: {@code mrjRefresh} (merge + propagate + conflict handling) of all read inputs.
+ *
+ * <p>Reading and mapping loading happen in the per-invocation setup, so only the per-state work is measured. The
+ * {@code iterative} parameter compares the recursive and iterative propagation walks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropagateBenchmark {
+	@State(Scope.Thread)
+	public static class RefreshState {
+		@Setup(Level.Trial)
+		public void setupTrial() {
+			inputs = BenchmarkFixtures.inputs();
+		}
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			remapper = BenchmarkFixtures.newRemapper().iterativePropagation(iterative).build();
+			remapper.readInputs(inputs);
+			remapper.refresh();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		@Param({"false", "true"})
+		boolean iterative;
+
+		Path[] inputs;
+		TinyRemapper remapper;
+	}
+
+	@Benchmark
+	public void mrjRefresh(RefreshState state) {
+		for (TinyRemapper.MrjState mrjState : state.remapper.mrjStates.values()) {
+			state.remapper.mrjRefresh(mrjState);
+		}
+	}
+}
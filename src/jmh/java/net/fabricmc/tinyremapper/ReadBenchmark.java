@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Input reading: the full {@code readInputs} path (archive access + analysis) and {@code analyze} on its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+	@State(Scope.Thread)
+	public static class ReadState {
+		@Setup(Level.Trial)
+		public void setupTrial() {
+			inputs = BenchmarkFixtures.inputs();
+		}
+
+		@Setup(Level.Invocation)
+		public void setup() {
+			remapper = BenchmarkFixtures.newRemapper().build();
+		}
+
+		@TearDown(Level.Invocation)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		Path[] inputs;
+		TinyRemapper remapper;
+	}
+
+	@State(Scope.Thread)
+	public static class AnalyzeState {
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			remapper = BenchmarkFixtures.newRemapper().build();
+
+			for (Path input : BenchmarkFixtures.inputs()) {
+				try (ZipFile zip = new ZipFile(input.toFile())) {
+					for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+						ZipEntry entry = it.nextElement();
+						if (!entry.getName().endsWith(".class")) continue;
+
+						try (InputStream is = zip.getInputStream(entry)) {
+							files.add(Paths.get(entry.getName()));
+							data.add(readFully(is, (int) entry.getSize()));
+						}
+					}
+				}
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			remapper.finish();
+		}
+
+		TinyRemapper remapper;
+		final List<Path> files = new ArrayList<>();
+		final List<byte[]> data = new ArrayList<>();
+	}
+
+	@Benchmark
+	public void readInputs(ReadState state) {
+		state.remapper.readInputs(state.inputs);
+	}
+
+	@Benchmark
+	public void analyze(AnalyzeState state, Blackhole bh) {
+		List<Path> files = state.files;
+		List<byte[]> data = state.data;
+
+		for (int i = 0; i < files.size(); i++) {
+			bh.consume(state.remapper.analyze(true, null, files.get(i), files.get(i), data.get(i)));
+		}
+	}
+
+	private static byte[] readFully(InputStream is, int size) throws IOException {
+		byte[] ret = new byte[size];
+		int pos = 0;
+		int len;
+
+		while (pos < size && (len = is.read(ret, pos, size - pos)) > 0) {
+			pos += len;
+		}
+
+		if (pos != size) throw new IOException("truncated entry");
+
+		return ret;
+	}
+}
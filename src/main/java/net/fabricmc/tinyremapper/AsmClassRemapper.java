@@ -20,7 +20,9 @@ package net.fabricmc.tinyremapper;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
@@ -29,6 +31,7 @@ import java.util.regex.Pattern;
 import javax.lang.model.SourceVersion;
 
 import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Handle;
@@ -36,6 +39,7 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
 import org.objectweb.asm.commons.FieldRemapper;
 import org.objectweb.asm.commons.MethodRemapper;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -44,35 +48,23 @@ import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.ParameterNode;
 
-import net.fabricmc.tinyremapper.api.TrMember;
-
 final class AsmClassRemapper extends VisitTrackingClassRemapper {
 	AsmClassRemapper(ClassVisitor cv, AsmRemapper remapper,
-			boolean rebuildSourceFilenames, boolean checkPackageAccess, boolean skipLocalMapping,
-			boolean renameInvalidLocals, Pattern invalidLvNamePattern, boolean inferNameFromSameLvIndex) {
+			boolean rebuildSourceFilenames, boolean skipLocalMapping,
+			boolean renameInvalidLocals, Pattern invalidLvNamePattern, boolean inferNameFromSameLvIndex,
+			boolean[] unchangedMethods, boolean writerOutput) {
 		super(cv, remapper);
 		this.rebuildSourceFilenames = rebuildSourceFilenames;
-		this.checkPackageAccess = checkPackageAccess;
 		this.skipLocalMapping = skipLocalMapping;
 		this.renameInvalidLocals = renameInvalidLocals;
 		this.invalidLvNamePattern = invalidLvNamePattern;
 		this.inferNameFromSameLvIndex = inferNameFromSameLvIndex;
+		this.unchangedMethods = unchangedMethods;
+		this.writerOutput = writerOutput;
 	}
 
 	@Override
 	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-		if (checkPackageAccess) {
-			AsmRemapper remapper = (AsmRemapper) this.remapper;
-
-			if (superName != null) PackageAccessChecker.checkClass(name, superName, "super class", remapper);
-
-			if (interfaces != null) {
-				for (String iface : interfaces) {
-					PackageAccessChecker.checkClass(name, iface, "super interface", remapper);
-				}
-			}
-		}
-
 		sourceNameVisited = false;
 
 		super.visit(version, access, name, signature, superName, interfaces);
@@ -100,10 +92,6 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 
 	@Override
 	public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
-		if (checkPackageAccess) {
-			PackageAccessChecker.checkDesc(className, descriptor, "field descriptor", (AsmRemapper) remapper);
-		}
-
 		return super.visitField(access, name, descriptor, signature, value);
 	}
 
@@ -114,12 +102,24 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 
 	@Override
 	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-		if (checkPackageAccess) {
-			PackageAccessChecker.checkDesc(className, descriptor, "method descriptor", (AsmRemapper) remapper);
-		}
+		copyMethod = unchangedMethods != null && unchangedMethods[methodIndex++];
+
+		if (!copyMethod && (!skipLocalMapping || renameInvalidLocals)) {
+			if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) { // no code to stream
+				streamLocals = false;
+				knownArgs = null;
+			} else if (writerOutput) { // parameters can be deferred until the locals are processed
+				streamLocals = true;
+				knownArgs = null;
+			} else {
+				knownArgs = AsmMethodRemapper.getKnownArgs((AsmRemapper) remapper, className, access, name, descriptor,
+						skipLocalMapping, renameInvalidLocals, invalidLvNamePattern);
+				streamLocals = knownArgs != null;
+			}
 
-		if (!skipLocalMapping || renameInvalidLocals) {
-			methodNode = new MethodNode(api, access, name, descriptor, signature, exceptions);
+			methodNode = streamLocals
+					? AsmMethodRemapper.getLocalsNode(access, name, descriptor)
+					: new MethodNode(api, access, name, descriptor, signature, exceptions);
 		}
 
 		return super.visitMethod(access, name, descriptor, signature, exceptions);
@@ -127,8 +127,12 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 
 	@Override
 	protected MethodVisitor createMethodRemapper(MethodVisitor methodVisitor) {
-		return new AsmMethodRemapper(methodVisitor, (AsmRemapper) remapper, className, methodNode,
-				checkPackageAccess, skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex);
+		if (copyMethod) { // nothing to remap, pass the code through to allow the class writer to copy it as is
+			return methodVisitor;
+		}
+
+		return new AsmMethodRemapper(methodVisitor, (AsmRemapper) remapper, className, methodNode, streamLocals, knownArgs,
+				skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex);
 	}
 
 	@Override
@@ -151,13 +155,18 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 	}
 
 	private final boolean rebuildSourceFilenames;
-	private final boolean checkPackageAccess;
 	private final boolean skipLocalMapping;
 	private final boolean renameInvalidLocals;
 	private final Pattern invalidLvNamePattern;
 	private final boolean inferNameFromSameLvIndex;
+	private final boolean[] unchangedMethods; // null unless copying unchanged methods, indexed by method order
+	private final boolean writerOutput; // whether methods are visited directly into the class writer, which accepts parameters after the code
 	private boolean sourceNameVisited;
 	private MethodNode methodNode;
+	private boolean streamLocals; // whether the locals can be processed without materializing the method
+	private String[] knownArgs; // final arg names if determined ahead of the code, null if the parameters get deferred
+	private int methodIndex;
+	private boolean copyMethod;
 
 	private static class AsmFieldRemapper extends FieldRemapper {
 		AsmFieldRemapper(FieldVisitor fieldVisitor,
@@ -176,79 +185,69 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 				AsmRemapper remapper,
 				String owner,
 				MethodNode methodNode,
-				boolean checkPackageAccess,
+				boolean streamLocals,
+				String[] knownArgs,
 				boolean skipLocalMapping,
 				boolean renameInvalidLocals,
 				Pattern invalidLvNamePattern,
 				boolean inferNameFromSameLvIndex) {
-			super(methodNode != null ? methodNode : methodVisitor, remapper);
+			super(createDelegate(methodVisitor, methodNode, streamLocals, knownArgs), remapper);
 			this.owner = owner;
 			this.methodNode = methodNode;
+			this.localsRewriter = mv instanceof LocalsRewriter ? (LocalsRewriter) mv : null;
 			this.output = methodVisitor;
-			this.checkPackageAccess = checkPackageAccess;
+			this.nameCounts = methodNode != null ? SCRATCH.get().nameCounts : null;
 			this.skipLocalMapping = skipLocalMapping;
 			this.renameInvalidLocals = renameInvalidLocals;
 			this.invalidLvNamePattern = invalidLvNamePattern;
 			this.inferNameFromSameLvIndex = inferNameFromSameLvIndex;
 		}
 
-		@Override
-		public AnnotationVisitor createAnnotationRemapper(String descriptor, AnnotationVisitor annotationVisitor) {
-			return new AsmAnnotationRemapper(descriptor, annotationVisitor, (AsmRemapper) remapper);
+		/**
+		 * Get the reused method node to collect a streamed method's parameters and local variables in.
+		 */
+		static MethodNode getLocalsNode(int access, String name, String desc) {
+			return SCRATCH.get().getLocalsNode(access, name, desc);
 		}
 
-		@Override
-		public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkClass(this.owner, type, "try-catch", (AsmRemapper) remapper);
-			}
+		private static MethodVisitor createDelegate(MethodVisitor output, MethodNode methodNode, boolean streamLocals, String[] knownArgs) {
+			if (methodNode == null) return output;
 
-			super.visitTryCatchBlock(start, end, handler, type);
-		}
+			Scratch scratch = SCRATCH.get();
+			scratch.reset();
 
-		@Override
-		public void visitTypeInsn(int opcode, String type) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkClass(this.owner, type, "type instruction", (AsmRemapper) remapper);
-			}
-
-			super.visitTypeInsn(opcode, type);
+			return streamLocals ? new LocalsRewriter(output, methodNode, knownArgs, scratch) : methodNode;
 		}
 
-		@Override
-		public void visitLdcInsn(Object value) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkValue(this.owner, value, "ldc instruction", (AsmRemapper) remapper);
-			}
-
-			super.visitLdcInsn(value);
-		}
+		/**
+		 * Determine the final arg names if the mappings already fully decide them, so the parameters can be emitted
+		 * ahead of the code and the method doesn't have to be materialized for processLocals.
+		 *
+		 * @return the arg names, or null if they depend on the local variables
+		 */
+		static String[] getKnownArgs(AsmRemapper remapper, String owner, int access, String name, String desc,
+				boolean skipLocalMapping, boolean renameInvalidLocals, Pattern invalidLvNamePattern) {
+			Type[] argTypes = Type.getArgumentTypes(desc);
+			if (argTypes.length == 0) return NO_ARGS;
+			if (skipLocalMapping) return null; // existing names are only known after the local variables
 
-		@Override
-		public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkDesc(this.owner, descriptor, "multianewarray instruction", (AsmRemapper) remapper);
-			}
+			String[] ret = new String[argTypes.length];
+			int lvIndex = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
 
-			super.visitMultiANewArrayInsn(descriptor, numDimensions);
-		}
+			for (int i = 0; i < argTypes.length; i++) {
+				String arg = remapper.mapMethodArg(owner, name, desc, lvIndex, null);
+				if (arg == null || renameInvalidLocals && !isValidLvName(arg, invalidLvNamePattern)) return null;
 
-		@Override
-		public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkMember(this.owner, owner, name, descriptor, TrMember.MemberType.FIELD, "field instruction", (AsmRemapper) remapper);
+				ret[i] = arg;
+				lvIndex += argTypes[i].getSize();
 			}
 
-			super.visitFieldInsn(opcode, owner, name, descriptor);
+			return ret;
 		}
 
 		@Override
-		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
-			if (checkPackageAccess) {
-				PackageAccessChecker.checkMember(this.owner, owner, name, descriptor, TrMember.MemberType.METHOD, "method instruction", (AsmRemapper) remapper);
-			}
-
-			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+		public AnnotationVisitor createAnnotationRemapper(String descriptor, AnnotationVisitor annotationVisitor) {
+			return new AsmAnnotationRemapper(descriptor, annotationVisitor, (AsmRemapper) remapper);
 		}
 
 		@Override
@@ -295,13 +294,20 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 					&& !bsm.isInterface();
 		}
 
+		@Override
+		public void visitMaxs(int maxStack, int maxLocals) {
+			if (localsRewriter != null) {
+				if (needsLocalsProcessing()) processLocals();
+				localsRewriter.visitLocals();
+			}
+
+			super.visitMaxs(maxStack, maxLocals);
+		}
+
 		@Override
 		public void visitEnd() {
-			if (methodNode != null) {
-				if (!skipLocalMapping
-						|| renameInvalidLocals && (methodNode.localVariables != null && !methodNode.localVariables.isEmpty() || methodNode.parameters != null && !methodNode.parameters.isEmpty())) {
-					processLocals();
-				}
+			if (methodNode != null && localsRewriter == null) {
+				if (needsLocalsProcessing()) processLocals();
 
 				methodNode.visitEnd();
 				methodNode.accept(output);
@@ -310,6 +316,11 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 			}
 		}
 
+		private boolean needsLocalsProcessing() {
+			return !skipLocalMapping
+					|| renameInvalidLocals && (methodNode.localVariables != null && !methodNode.localVariables.isEmpty() || methodNode.parameters != null && !methodNode.parameters.isEmpty());
+		}
+
 		private void processLocals() {
 			final boolean isStatic = (methodNode.access & Opcodes.ACC_STATIC) != 0;
 			final Type[] argTypes = Type.getArgumentTypes(methodNode.desc);
@@ -345,10 +356,15 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 					} else { // var
 						if (!skipLocalMapping) {
 							int startOpIdx = 0;
-							AbstractInsnNode start = lv.start;
 
-							while ((start = start.getPrevious()) != null) {
-								if (start.getOpcode() >= 0) startOpIdx++;
+							if (localsRewriter != null) {
+								startOpIdx = localsRewriter.getInsnIndex(lv.start.getLabel());
+							} else {
+								AbstractInsnNode start = lv.start;
+
+								while ((start = start.getPrevious()) != null) {
+									if (start.getOpcode() >= 0) startOpIdx++;
+								}
 							}
 
 							lv.name = ((AsmRemapper) remapper).mapMethodVar(owner, methodNode.name, methodNode.desc, lv.index, startOpIdx, i, lv.name);
@@ -440,7 +456,10 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 
 				for (int i = 0; i < args.length; i++) {
 					if (!argsWritten[i] && args[i] != null) {
-						if (start == null) { // lazy initialize start + end by finding the first and last label node
+						if (start == null && localsRewriter != null) { // already tracked while streaming the code
+							start = new LabelNode(localsRewriter.getStart());
+							end = new LabelNode(localsRewriter.getEnd());
+						} else if (start == null) { // lazy initialize start + end by finding the first and last label node
 							boolean pastStart = false; // whether any actual instructions were already encountered
 
 							for (Iterator<AbstractInsnNode> it = methodNode.instructions.iterator(); it.hasNext(); ) {
@@ -613,6 +632,10 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 		}
 
 		private boolean isValidLvName(String s) {
+			return isValidLvName(s, invalidLvNamePattern);
+		}
+
+		private static boolean isValidLvName(String s, Pattern invalidLvNamePattern) {
 			return isValidJavaIdentifier(s) && !isJavaKeyword(s)
 					&& (invalidLvNamePattern == null || !invalidLvNamePattern.matcher(s).matches());
 		}
@@ -630,11 +653,316 @@ final class AsmClassRemapper extends VisitTrackingClassRemapper {
 			return SourceVersion.isKeyword(s);
 		}
 
+		/**
+		 * Streams the code to the output while collecting only what processLocals needs, as a lighter alternative to
+		 * materializing the whole method.
+		 *
+		 * <p>The parameters and local variables are buffered in the otherwise empty method node. The parameters are
+		 * emitted with the known arg names before anything else, or together with the processed local variables once the
+		 * code ended if the output accepts them late. The instructions are only counted to resolve the start instruction
+		 * index of local variables and to find the labels spanning all of them for added arg local variables.
+		 */
+		private static final class LocalsRewriter extends MethodVisitor {
+			/**
+			 * @param args the final arg names, or null to defer the parameters until after the code
+			 */
+			LocalsRewriter(MethodVisitor output, MethodNode methodNode, String[] args, Scratch scratch) {
+				super(Opcodes.ASM9, output);
+
+				this.methodNode = methodNode;
+				this.args = args;
+				this.mayAddArgLvs = methodNode.desc.charAt(1) != ')' && (args == null || hasAnyName(args));
+				this.scratch = scratch;
+			}
+
+			@Override
+			public void visitParameter(String name, int access) {
+				if (methodNode.parameters == null) methodNode.parameters = scratch.parameters;
+
+				methodNode.parameters.add(new ParameterNode(name, access));
+			}
+
+			@Override
+			public AnnotationVisitor visitAnnotationDefault() {
+				visitParameters();
+				return super.visitAnnotationDefault();
+			}
+
+			@Override
+			public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+				visitParameters();
+				return super.visitAnnotation(descriptor, visible);
+			}
+
+			@Override
+			public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+				visitParameters();
+				return super.visitTypeAnnotation(typeRef, typePath, descriptor, visible);
+			}
+
+			@Override
+			public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+				visitParameters();
+				super.visitAnnotableParameterCount(parameterCount, visible);
+			}
+
+			@Override
+			public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+				visitParameters();
+				return super.visitParameterAnnotation(parameter, descriptor, visible);
+			}
+
+			@Override
+			public void visitAttribute(Attribute attribute) {
+				visitParameters();
+				super.visitAttribute(attribute);
+			}
+
+			@Override
+			public void visitCode() {
+				visitParameters();
+				super.visitCode();
+			}
+
+			/**
+			 * Emit the parameters the same way processLocals updates them with all arg names present.
+			 */
+			private void visitParameters() {
+				if (parametersVisited || args == null) return;
+				parametersVisited = true;
+
+				List<ParameterNode> parameters = methodNode.parameters;
+				int size = parameters != null ? parameters.size() : 0;
+				if (size == 0 && args.length == 0) return;
+
+				for (int i = 0, max = Math.max(size, args.length); i < max; i++) {
+					super.visitParameter(i < args.length ? args[i] : parameters.get(i).name, i < size ? parameters.get(i).access : 0);
+				}
+			}
+
+			@Override
+			public void visitLabel(Label label) {
+				if (start == null && !pastStart) start = label; // start label must precede all instructions
+				end = label;
+				scratch.addLabel(label, insnCount);
+
+				super.visitLabel(label);
+			}
+
+			private void visitInsn() {
+				if (!pastStart) {
+					pastStart = true;
+
+					if (start == null && mayAddArgLvs) { // no labels -> create one in case lvs get added for args
+						start = new Label();
+						super.visitLabel(start);
+					}
+				}
+
+				end = null; // end must be after all instructions
+				insnCount++;
+			}
+
+			@Override
+			public void visitInsn(int opcode) {
+				visitInsn();
+				super.visitInsn(opcode);
+			}
+
+			@Override
+			public void visitIntInsn(int opcode, int operand) {
+				visitInsn();
+				super.visitIntInsn(opcode, operand);
+			}
+
+			@Override
+			public void visitVarInsn(int opcode, int var) {
+				visitInsn();
+				super.visitVarInsn(opcode, var);
+			}
+
+			@Override
+			public void visitTypeInsn(int opcode, String type) {
+				visitInsn();
+				super.visitTypeInsn(opcode, type);
+			}
+
+			@Override
+			public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+				visitInsn();
+				super.visitFieldInsn(opcode, owner, name, descriptor);
+			}
+
+			@Override
+			public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+				visitInsn();
+				super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+			}
+
+			@Override
+			public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+				visitInsn();
+				super.visitInvokeDynamicInsn(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+			}
+
+			@Override
+			public void visitJumpInsn(int opcode, Label label) {
+				visitInsn();
+				super.visitJumpInsn(opcode, label);
+			}
+
+			@Override
+			public void visitLdcInsn(Object value) {
+				visitInsn();
+				super.visitLdcInsn(value);
+			}
+
+			@Override
+			public void visitIincInsn(int var, int increment) {
+				visitInsn();
+				super.visitIincInsn(var, increment);
+			}
+
+			@Override
+			public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+				visitInsn();
+				super.visitTableSwitchInsn(min, max, dflt, labels);
+			}
+
+			@Override
+			public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+				visitInsn();
+				super.visitLookupSwitchInsn(dflt, keys, labels);
+			}
+
+			@Override
+			public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+				visitInsn();
+				super.visitMultiANewArrayInsn(descriptor, numDimensions);
+			}
+
+			@Override
+			public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+				methodNode.localVariables.add(new LocalVariableNode(name, descriptor, signature, new LabelNode(start), new LabelNode(end), index));
+			}
+
+			/**
+			 * @return the label preceding all instructions, only called once the code ended
+			 */
+			Label getStart() {
+				if (start == null) { // no labels and instructions
+					start = new Label();
+					super.visitLabel(start);
+				}
+
+				return start;
+			}
+
+			/**
+			 * @return the label following all instructions, only called once the code ended
+			 */
+			Label getEnd() {
+				if (end == null) {
+					if (!pastStart) {
+						end = getStart();
+					} else { // no trailing label yet, the code ended so it is visited after all instructions
+						end = new Label();
+						super.visitLabel(end);
+					}
+				}
+
+				return end;
+			}
+
+			/**
+			 * Emit the processed local variables and the deferred parameters.
+			 */
+			void visitLocals() {
+				if (args == null && methodNode.parameters != null) {
+					for (ParameterNode parameter : methodNode.parameters) {
+						parameter.accept(mv);
+					}
+				}
+
+				if (methodNode.localVariables != null) {
+					for (LocalVariableNode lv : methodNode.localVariables) {
+						lv.accept(mv);
+					}
+				}
+			}
+
+			int getInsnIndex(Label label) {
+				return scratch.getInsnIndex(label);
+			}
+
+			private static boolean hasAnyName(String[] args) {
+				for (String arg : args) {
+					if (arg != null) return true;
+				}
+
+				return false;
+			}
+
+			private final MethodNode methodNode;
+			private final String[] args;
+			private final boolean mayAddArgLvs; // whether any arg may be named without a lv, needing the start label
+			private final Scratch scratch;
+			private boolean parametersVisited;
+			private boolean pastStart; // whether any actual instructions were already encountered
+			private int insnCount;
+			private Label start;
+			private Label end;
+		}
+
+		/**
+		 * Per thread structures reused for processing the locals of every method.
+		 */
+		private static final class Scratch {
+			MethodNode getLocalsNode(int access, String name, String desc) {
+				localsNode.access = access;
+				localsNode.name = name;
+				localsNode.desc = desc;
+				localsNode.parameters = null;
+				localsNode.localVariables = localVariables; // non-null like for any new MethodNode with code
+
+				return localsNode;
+			}
+
+			void reset() {
+				nameCounts.clear();
+				localVariables.clear();
+				parameters.clear();
+				labelInsnIndices.clear();
+			}
+
+			void addLabel(Label label, int insnIndex) {
+				labelInsnIndices.put(label, insnIndex);
+			}
+
+			/**
+			 * @return the number of actual instructions preceding the label
+			 */
+			int getInsnIndex(Label label) {
+				Integer ret = labelInsnIndices.get(label);
+
+				return ret != null ? ret : 0;
+			}
+
+			private final MethodNode localsNode = new MethodNode();
+			final Map<String, Integer> nameCounts = new HashMap<>();
+			final List<LocalVariableNode> localVariables = new ArrayList<>();
+			final List<ParameterNode> parameters = new ArrayList<>();
+			private final Map<Label, Integer> labelInsnIndices = new IdentityHashMap<>();
+		}
+
+		private static final String[] NO_ARGS = new String[0];
+		private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
 		private final String owner;
-		private final MethodNode methodNode;
+		private final MethodNode methodNode; // reused, only holding the parameters and local variables if streaming
+		private final LocalsRewriter localsRewriter; // null unless streaming the method
 		private final MethodVisitor output;
-		private final Map<String, Integer> nameCounts = new HashMap<>();
-		private final boolean checkPackageAccess;
+		private final Map<String, Integer> nameCounts;
 		private final boolean skipLocalMapping;
 		private final boolean renameInvalidLocals;
 		private final Pattern invalidLvNamePattern;
@@ -59,7 +59,7 @@ class AsmRemapper extends TrRemapper {
 			return newName;
 		}
 
-		assert (newName = tr.fieldMap.get(cls.getName()+"/"+MemberInstance.getFieldId(name, desc, tr.ignoreFieldDesc))) == null || newName.equals(name);
+		assert (newName = tr.memberMappings.get(TrMember.MemberType.FIELD, cls.getName(), MemberInstance.getFieldId(name, desc, tr.ignoreFieldDesc))) == null || newName.equals(name);
 
 		return tr.extraRemapper != null ? tr.extraRemapper.mapFieldName(cls.getName(), name, desc) : name;
 	}
@@ -89,7 +89,7 @@ class AsmRemapper extends TrRemapper {
 			return newName;
 		}
 
-		assert (newName = tr.methodMap.get(cls.getName()+"/"+MemberInstance.getMethodId(name, desc))) == null || newName.equals(name);
+		assert (newName = tr.memberMappings.get(TrMember.MemberType.METHOD, cls.getName(), MemberInstance.getMethodId(name, desc))) == null || newName.equals(name);
 
 		return tr.extraRemapper != null ? tr.extraRemapper.mapMethodName(cls.getName(), name, desc) : name;
 	}
@@ -34,14 +34,14 @@ final class BridgeHandler {
 
 		// try to propagate bridge method mapping to the actual implementation
 
-		String bridgeId = bridgeMethod.getId();
-		int descStart = bridgeId.indexOf('(');
+		SubtypeOracle subtypes = bridgeMethod.getContext().subtypes;
 
 		for (MemberInstance m : bridgeMethod.cls.getMembers()) {
 			if (m != bridgeMethod // same method
 					&& m.isVirtual() // not a method or not relevant
 					&& !m.isBridge() // method is a bridge on its own
-					&& isBridged(bridgeId, m.getId(), descStart, bridgeMethod.getContext())) {
+					&& m.name.equals(bridgeMethod.name) // bridges keep the target's name
+					&& subtypes.isBridgedDesc(bridgeMethod.desc, m.desc)) {
 				bridgeMethod.bridgeTarget = m;
 
 				return m;
@@ -57,46 +57,46 @@ final class BridgeHandler {
 	 * <p>This requires both methods to have the same name, same parameter count and all args+return value in the
 	 * target method to be assignable to the bridge method's equivalents. The target method specializes the bridge
 	 * method to provide an unchecked parameterized implementation and/or an override with a more specific return type.
+	 *
+	 * <p>Only the descriptors are checked here, the name is compared by the caller. The results are memoized by
+	 * {@link SubtypeOracle#isBridgedDesc}.
 	 */
-	private static boolean isBridged(String bridgeId, String targetId, int descStart, MrjState context) {
-		// check for same method name
-		if (!bridgeId.regionMatches(0, targetId, 0, descStart + 1)) return false; // comparison includes ( to reject name suffixes
-
+	static boolean isBridgedDesc(String bridgeDesc, String targetDesc, MrjState context) {
 		// check for same or assignable return type
-		int argsEndBridge = bridgeId.lastIndexOf(')');
-		int argsEndTarget = targetId.lastIndexOf(')');
+		int argsEndBridge = bridgeDesc.lastIndexOf(')');
+		int argsEndTarget = targetDesc.lastIndexOf(')');
 
-		if (!ClassInstance.isAssignableFrom(bridgeId, argsEndBridge + 1, targetId, argsEndTarget + 1, context)) {
+		if (!ClassInstance.isAssignableFrom(bridgeDesc, argsEndBridge + 1, targetDesc, argsEndTarget + 1, context)) {
 			return false;
 		}
 
 		// check for same or assignable arg types
-		int posBridge = descStart + 1;
+		int posBridge = 1;
 		int posTarget = posBridge;
 
 		for (; posBridge < argsEndBridge && posTarget < argsEndTarget; posBridge++, posTarget++) { // loops one arg at a time
-			if (!ClassInstance.isAssignableFrom(bridgeId, posBridge, targetId, posTarget, context)) return false;
+			if (!ClassInstance.isAssignableFrom(bridgeDesc, posBridge, targetDesc, posTarget, context)) return false;
 
 			// seek to the arg's last character (skip array prefixes and object descriptors)..
-			// .. for bridgeId
+			// .. for bridgeDesc
 
-			char type = bridgeId.charAt(posBridge);
+			char type = bridgeDesc.charAt(posBridge);
 
 			while (type == '[') {
-				type = bridgeId.charAt(++posBridge);
+				type = bridgeDesc.charAt(++posBridge);
 			}
 
-			if (type == 'L') posBridge = bridgeId.indexOf(';', posBridge + 1);
+			if (type == 'L') posBridge = bridgeDesc.indexOf(';', posBridge + 1);
 
-			// .. and for targetId
+			// .. and for targetDesc
 
-			type = targetId.charAt(posTarget);
+			type = targetDesc.charAt(posTarget);
 
 			while (type == '[') {
-				type = targetId.charAt(++posTarget);
+				type = targetDesc.charAt(++posTarget);
 			}
 
-			if (type == 'L') posTarget = targetId.indexOf(';', posTarget + 1);
+			if (type == 'L') posTarget = targetDesc.indexOf(';', posTarget + 1);
 		}
 
 		return posBridge == argsEndBridge && posTarget == argsEndTarget; // check for same arg count
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal read-only zip archive reader operating on positional {@link FileChannel} reads.
+ *
+ * <p>Only the central directory gets parsed, entry data is extracted on demand into heap buffers without any locking,
+ * so entries may be read concurrently from multiple threads. The file stays open until {@link #close} is called.
+ * Archives using features beyond plain stored or deflated entries (zip64, encryption, spanning, other compression
+ * methods) aren't supported, {@link #open} returns null for those so the caller can fall back to the zip file system.
+ */
+final class ChannelZipFile implements Closeable {
+	static final class Entry {
+		Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the uncompressed size of the entry data.
+		 */
+		int getSize() {
+			return size;
+		}
+
+		boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+		final String name;
+		final int method;
+		final int compressedSize;
+		final int size;
+		final int localHeaderOffset;
+	}
+
+	/**
+	 * Open and index the supplied zip file.
+	 *
+	 * @return the indexed archive or null if the file can't be handled by this reader
+	 * @throws ZipException if the file isn't a valid zip archive
+	 */
+	static ChannelZipFile open(Path file) throws IOException {
+		if (file.getFileSystem() != FileSystems.getDefault()) return null;
+
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		ChannelZipFile ret = null;
+
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) return null;
+
+			int[] cdRange = new int[2];
+			List<Entry> entries = readCentralDirectory(channel, (int) size, file, cdRange);
+			if (entries == null) return null;
+
+			ret = new ChannelZipFile(file, channel, (int) size, entries, cdRange[0], cdRange[1]);
+
+			return ret;
+		} finally {
+			if (ret == null) channel.close();
+		}
+	}
+
+	private static List<Entry> readCentralDirectory(FileChannel channel, int fileSize, Path file, int[] cdRangeOut) throws IOException {
+		if (fileSize < EOCD_SIZE) throw new ZipException("can't find end of central directory in "+file);
+
+		// the end of central directory record is followed by a comment of up to 64k
+		int tailStart = Math.max(0, fileSize - EOCD_SIZE - 0xffff);
+		ByteBuffer tail = read(channel, tailStart, fileSize - tailStart, file);
+		int eocd = -1;
+
+		for (int pos = tail.limit() - EOCD_SIZE; pos >= 0; pos--) {
+			if (tail.getInt(pos) == EOCD_SIGNATURE
+					&& pos + EOCD_SIZE + (tail.getShort(pos + 20) & 0xffff) == tail.limit()) {
+				eocd = pos;
+				break;
+			}
+		}
+
+		if (eocd < 0) throw new ZipException("can't find end of central directory in "+file);
+
+		if (eocd >= ZIP64_LOCATOR_SIZE) {
+			if (tail.getInt(eocd - ZIP64_LOCATOR_SIZE) == ZIP64_LOCATOR_SIGNATURE) return null;
+		} else if (tailStart + eocd >= ZIP64_LOCATOR_SIZE) { // locator outside the tail read, only possible with huge comments
+			if (read(channel, tailStart + eocd - ZIP64_LOCATOR_SIZE, 4, file).getInt(0) == ZIP64_LOCATOR_SIGNATURE) return null;
+		}
+
+		int diskNumber = tail.getShort(eocd + 4) & 0xffff;
+		int cdDisk = tail.getShort(eocd + 6) & 0xffff;
+		int diskEntries = tail.getShort(eocd + 8) & 0xffff;
+		int totalEntries = tail.getShort(eocd + 10) & 0xffff;
+		long cdSize = tail.getInt(eocd + 12) & 0xffffffffL;
+		long cdOffset = tail.getInt(eocd + 16) & 0xffffffffL;
+
+		eocd += tailStart; // file offset from here on
+
+		if (diskNumber != 0 || cdDisk != 0 || diskEntries != totalEntries) return null; // spanned
+		if (totalEntries == 0xffff || cdSize == 0xffffffffL || cdOffset == 0xffffffffL) return null; // zip64
+		if (cdSize > eocd) throw new ZipException("invalid central directory size in "+file);
+
+		// the archive may be prefixed with other data (e.g. self extracting archives), offsets are relative to the zip start
+		int cdStart = (int) (eocd - cdSize);
+		long base = cdStart - cdOffset;
+		if (base < 0) throw new ZipException("invalid central directory offset in "+file);
+
+		cdRangeOut[0] = cdStart;
+		cdRangeOut[1] = (int) cdSize;
+
+		if (totalEntries == 0) return Collections.emptyList();
+
+		ByteBuffer buffer = read(channel, cdStart, (int) cdSize, file);
+		List<Entry> ret = new ArrayList<>(totalEntries);
+		int pos = 0;
+
+		for (int i = 0; i < totalEntries; i++) {
+			if (pos + CEN_SIZE > cdSize || buffer.getInt(pos) != CEN_SIGNATURE) throw new ZipException("invalid central directory entry in "+file);
+
+			int flags = buffer.getShort(pos + 8) & 0xffff;
+			int method = buffer.getShort(pos + 10) & 0xffff;
+			long compressedSize = buffer.getInt(pos + 20) & 0xffffffffL;
+			long size = buffer.getInt(pos + 24) & 0xffffffffL;
+			int nameLen = buffer.getShort(pos + 28) & 0xffff;
+			int extraLen = buffer.getShort(pos + 30) & 0xffff;
+			int commentLen = buffer.getShort(pos + 32) & 0xffff;
+			long localHeaderOffset = (buffer.getInt(pos + 42) & 0xffffffffL) + base;
+
+			if ((flags & FLAG_ENCRYPTED) != 0
+					|| method != METHOD_STORED && method != METHOD_DEFLATED
+					|| compressedSize >= Integer.MAX_VALUE || size >= Integer.MAX_VALUE) { // also covers zip64 size markers
+				return null;
+			}
+
+			if (localHeaderOffset + LOC_SIZE > cdStart) throw new ZipException("invalid local header offset in "+file);
+			if (pos + CEN_SIZE + nameLen > cdSize) throw new ZipException("invalid central directory entry in "+file);
+
+			String name = new String(buffer.array(), pos + CEN_SIZE, nameLen, StandardCharsets.UTF_8);
+			ret.add(new Entry(name, method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+
+			pos += CEN_SIZE + nameLen + extraLen + commentLen;
+		}
+
+		return ret;
+	}
+
+	private ChannelZipFile(Path file, FileChannel channel, int size, List<Entry> entries, int cdStart, int cdSize) {
+		this.file = file;
+		this.channel = channel;
+		this.size = size;
+		this.entries = entries;
+		this.cdStart = cdStart;
+		this.cdSize = cdSize;
+	}
+
+	Path getPath() {
+		return file;
+	}
+
+	/**
+	 * @return the archive size in bytes.
+	 */
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Compute a checksum over the raw central directory.
+	 *
+	 * <p>The central directory holds the CRC of every entry's data, so this changes with any content change without
+	 * having to read the entries themselves.
+	 */
+	long getCentralDirectoryChecksum() throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(read(channel, cdStart, cdSize, file));
+
+		return crc.getValue();
+	}
+
+	List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Extract the entry's data into an exactly sized new array.
+	 */
+	byte[] read(Entry entry) throws IOException {
+		byte[] ret = new byte[entry.size];
+		read(entry, ret);
+
+		return ret;
+	}
+
+	/**
+	 * Extract the entry's data into the supplied buffer.
+	 *
+	 * <p>The data occupies the first {@link Entry#getSize()} bytes of the returned array, which is the supplied buffer
+	 * if it is large enough and a new array otherwise.
+	 */
+	byte[] read(Entry entry, byte[] dst) throws IOException {
+		if (dst.length < entry.size) dst = new byte[Math.max(entry.size, dst.length * 2)];
+
+		Scratch scratch = SCRATCH.get();
+		ByteBuffer header = scratch.header;
+		header.clear();
+		readFully(channel, header, entry.localHeaderOffset, file);
+
+		if (header.getInt(0) != LOC_SIGNATURE) throw new ZipException("invalid local header for "+entry.name+" in "+file);
+
+		long dataOffset = (long) entry.localHeaderOffset + LOC_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+		if (dataOffset + entry.compressedSize > size) throw new ZipException("truncated data for "+entry.name+" in "+file);
+
+		if (entry.method == METHOD_STORED) {
+			if (entry.compressedSize != entry.size) throw new ZipException("invalid size for stored entry "+entry.name+" in "+file);
+
+			readFully(channel, ByteBuffer.wrap(dst, 0, entry.size), dataOffset, file);
+		} else {
+			byte[] input = scratch.getInput(entry.compressedSize + 1);
+			readFully(channel, ByteBuffer.wrap(input, 0, entry.compressedSize), dataOffset, file);
+			input[entry.compressedSize] = 0; // nowrap inflaters may need an extra dummy byte to detect the end
+
+			Inflater inflater = scratch.inflater;
+			inflater.reset();
+			inflater.setInput(input, 0, entry.compressedSize + 1);
+
+			try {
+				int len = 0;
+
+				while (len < entry.size) {
+					int read = inflater.inflate(dst, len, entry.size - len);
+
+					if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+
+					len += read;
+				}
+
+				if (len != entry.size) throw new ZipException("invalid size for deflated entry "+entry.name+" in "+file);
+			} catch (DataFormatException e) {
+				throw new ZipException("invalid deflate data for "+entry.name+" in "+file+": "+e.getMessage());
+			}
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Release the underlying file, no entries may be read afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static ByteBuffer read(FileChannel channel, long pos, int len, Path file) throws IOException {
+		ByteBuffer ret = ByteBuffer.allocate(len).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(channel, ret, pos, file);
+
+		return ret;
+	}
+
+	/**
+	 * Fill the supplied buffer's remaining space from the given file offset.
+	 *
+	 * <p>Positional reads don't touch the channel position, so concurrent readers don't need to synchronize.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer dst, long pos, Path file) throws IOException {
+		while (dst.hasRemaining()) {
+			int read = channel.read(dst, pos);
+			if (read < 0) throw new EOFException("unexpected end of "+file);
+
+			pos += read;
+		}
+	}
+
+	/**
+	 * Per-thread read state, avoids re-creating the native inflater and the buffers for every entry.
+	 */
+	private static final class Scratch {
+		byte[] getInput(int size) {
+			if (input.length < size) input = new byte[Math.max(size, input.length * 2)];
+
+			return input;
+		}
+
+		final Inflater inflater = new Inflater(true);
+		final ByteBuffer header = ByteBuffer.allocate(LOC_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		byte[] input = new byte[8192];
+	}
+
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD_SIZE = 22;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int CEN_SIZE = 46;
+	private static final int LOC_SIGNATURE = 0x04034b50;
+	private static final int LOC_SIZE = 30;
+	private static final int FLAG_ENCRYPTED = 1;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private final Path file;
+	private final FileChannel channel;
+	private final int size;
+	private final List<Entry> entries;
+	private final int cdStart;
+	private final int cdSize;
+}
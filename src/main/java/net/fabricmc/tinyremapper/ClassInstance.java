@@ -32,7 +32,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Predicate;
 
@@ -43,6 +42,7 @@ import org.objectweb.asm.Opcodes;
 import net.fabricmc.tinyremapper.TinyRemapper.Direction;
 import net.fabricmc.tinyremapper.TinyRemapper.LinkedMethodPropagation;
 import net.fabricmc.tinyremapper.TinyRemapper.MrjState;
+import net.fabricmc.tinyremapper.TinyRemapper.ResolveCachePolicy;
 import net.fabricmc.tinyremapper.api.TrClass;
 import net.fabricmc.tinyremapper.api.TrEnvironment;
 import net.fabricmc.tinyremapper.api.TrField;
@@ -52,33 +52,51 @@ import net.fabricmc.tinyremapper.api.TrMethod;
 
 public final class ClassInstance implements TrClass {
 	static class RemapperSettings {
-		public final boolean ignoreFieldDesc, propagatePrivate;
+		public final boolean ignoreFieldDesc, propagatePrivate, iterativePropagation;
 		public final Set<String> forcePropagation;
 		public final LinkedMethodPropagation propagateBridges, propagateRecordComponents;
 		public final Map<MemberInstance, Set<String>> conflicts;
+		final boolean countResolves; // only if metrics are collected, into the class' MRJ state
+		final ResolveCachePolicy resolveCachePolicy;
+		final int resolveCacheSize;
+		final ResolveCache.Global globalResolveCache;
 
 		RemapperSettings(TinyRemapper tr) {
 			this.ignoreFieldDesc = tr.ignoreFieldDesc;
 			this.propagatePrivate = tr.propagatePrivate;
+			this.iterativePropagation = tr.iterativePropagation;
 			this.forcePropagation = tr.forcePropagation;
 			this.propagateBridges = tr.propagateBridges;
 			this.propagateRecordComponents = tr.propagateRecordComponents;
 			this.conflicts = tr.conflicts;
+			this.countResolves = tr.metricsListener != null;
+			this.resolveCachePolicy = tr.resolveCachePolicy;
+			this.resolveCacheSize = tr.resolveCacheSize;
+			this.globalResolveCache = tr.globalResolveCache;
 		}
 	}
 
 	ClassInstance(TinyRemapper tr, boolean isInput, InputTag[] inputTags, Path srcFile, byte[] data) {
-		this(new RemapperSettings(tr), isInput, inputTags, srcFile, data);
+		this(new RemapperSettings(tr), isInput, inputTags, srcFile, data, null);
 	}
 
-	private ClassInstance(RemapperSettings tr, boolean isInput, InputTag[] inputTags, Path srcFile, byte[] data) {
+	private ClassInstance(RemapperSettings tr, boolean isInput, InputTag[] inputTags, Path srcFile, byte[] data, ClassInstance copyOrigin) {
 		assert !isInput || data != null;
 		this.tr = tr;
 		this.isInput = isInput;
 		this.inputTags = inputTags;
 		this.srcPath = srcFile;
 		this.data = data;
-		this.mrjOrigin = this;
+
+		if (copyOrigin == null) {
+			this.mrjOrigin = this;
+			this.members = new MemberTable(tr.ignoreFieldDesc);
+		} else {
+			this.mrjOrigin = copyOrigin.mrjOrigin;
+			this.members = new MemberTable(copyOrigin.members, this);
+		}
+
+		this.resolvedMembers = ResolveCache.create(tr, this);
 	}
 
 	void init(int mrjVersion, String name, String sign, String superName, int access, String[] interfaces) {
@@ -99,7 +117,7 @@ public final class ClassInstance implements TrClass {
 	}
 
 	MemberInstance addMember(MemberInstance member) {
-		return members.put(member.getId(), member);
+		return members.put(member);
 	}
 
 	void addInputTags(InputTag[] tags) {
@@ -261,18 +279,72 @@ public final class ClassInstance implements TrClass {
 	 */
 	void propagate(MemberType type, String originatingCls, String idSrc, String nameDst,
 			Direction dir, boolean isVirtual, boolean fromBridge,
-			boolean first, Set<ClassInstance> visitedUp, Set<ClassInstance> visitedDown) {
+			boolean first, VisitedSet visitedUp, VisitedSet visitedDown) {
+		MemberInstance member = getMember(type, idSrc);
+
+		if (!propagateLocal(member, type, originatingCls, nameDst, isVirtual, fromBridge, first, visitedUp, visitedDown)) {
+			return;
+		}
+
+		assert isVirtual || dir == Direction.DOWN;
+
+		/*
+		 * Propagate the mapping along the hierarchy tree.
+		 *
+		 * The mapping ensures that overriding and shadowing behaviors remains the same.
+		 *
+		 * Direction.ANY is from where the current element was the initial node as specified
+		 * in the mappings. The member == null + dir checks above already verified that the
+		 * member exists in the current node.
+		 *
+		 * Direction.UP/DOWN handle propagation skipping across nodes which don't contain the
+		 * specific member, thus having no direct reference.
+		 *
+		 * isVirtual && ... handles propagation to an existing matching virtual member, which
+		 * spawns a new initial node from the propagation perspective. This is necessary as
+		 * different branches of the hierarchy tree that were not visited before may access it.
+		 */
+
+		if (propagatesUp(dir, isVirtual, member)) {
+			for (ClassInstance node : parents) {
+				if (visitedUp.add(node)) {
+					node.propagate(type, originatingCls, idSrc, nameDst,
+							Direction.UP, isVirtual, fromBridge,
+							false, visitedUp, visitedDown);
+				}
+			}
+		}
+
+		if (propagatesDown(dir, isVirtual, member)) {
+			for (ClassInstance node : children) {
+				if (visitedDown.add(node)) {
+					node.propagate(type, originatingCls, idSrc, nameDst,
+							Direction.DOWN, isVirtual, fromBridge,
+							false, visitedUp, visitedDown);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply a propagated mapping to the matching member of this class, shared by the recursive and iterative
+	 * propagation.
+	 *
+	 * @param member the member in this class matching the propagated id, null if there is none
+	 * @return whether the propagation continues to the neighbors of this class
+	 */
+	boolean propagateLocal(MemberInstance member, MemberType type, String originatingCls, String nameDst,
+			boolean isVirtual, boolean fromBridge,
+			boolean first, VisitedSet visitedUp, VisitedSet visitedDown) {
 		/*
 		 * initial private member or static method in interface: only local
 		 * non-virtual: up to matching member (if not already in this), then down until matching again (exclusive)
 		 * virtual: all across the hierarchy, only non-private|static can change direction - skip private|static in interfaces
 		 */
 
-		MemberInstance member = getMember(type, idSrc);
-
 		if (member != null) {
 			if (!first && !isVirtual) { // down propagation from non-virtual (static) member matching the signature again, which starts its own namespace
-				return;
+				return false;
 			}
 
 			if (first // directly mapped
@@ -290,7 +362,7 @@ public final class ClassInstance implements TrClass {
 			if (first
 					&& ((member.access & Opcodes.ACC_PRIVATE) != 0 // private members don't propagate, but they may get skipped over by overriding virtual methods
 					|| type == TrMember.MemberType.METHOD && isInterface() && !isVirtual)) { // non-virtual interface methods don't propagate either, the jvm only resolves direct accesses to them
-				return;
+				return false;
 			} else if (tr.propagateBridges != LinkedMethodPropagation.DISABLED
 					&& member.cls.isInput
 					&& isVirtual
@@ -302,13 +374,13 @@ public final class ClassInstance implements TrClass {
 				MemberInstance bridgeTarget = BridgeHandler.getTarget(member);
 
 				if (bridgeTarget != null) {
-					Set<ClassInstance> visitedUpBridge = Collections.newSetFromMap(new IdentityHashMap<>());
-					Set<ClassInstance> visitedDownBridge = Collections.newSetFromMap(new IdentityHashMap<>());
+					VisitedSet visitedUpBridge = visitedUp.nested();
+					VisitedSet visitedDownBridge = visitedDown.nested();
 
 					visitedUpBridge.add(member.cls);
 					visitedDownBridge.add(member.cls);
 
-					propagate(TrMember.MemberType.METHOD, originatingCls, bridgeTarget.getId(), nameDst, Direction.DOWN, true, tr.propagateBridges == LinkedMethodPropagation.COMPATIBLE, false, visitedUpBridge, visitedDownBridge);
+					Propagator.propagate(this, TrMember.MemberType.METHOD, originatingCls, bridgeTarget.getId(), nameDst, Direction.DOWN, true, tr.propagateBridges == LinkedMethodPropagation.COMPATIBLE, false, visitedUpBridge, visitedDownBridge);
 				}
 			}
 		} else { // member == null
@@ -317,44 +389,19 @@ public final class ClassInstance implements TrClass {
 			// potentially intermediately accessed location, handled through resolution in the remapper
 		}
 
-		assert isVirtual || dir == Direction.DOWN;
+		return true;
+	}
 
-		/*
-		 * Propagate the mapping along the hierarchy tree.
-		 *
-		 * The mapping ensures that overriding and shadowing behaviors remains the same.
-		 *
-		 * Direction.ANY is from where the current element was the initial node as specified
-		 * in the mappings. The member == null + dir checks above already verified that the
-		 * member exists in the current node.
-		 *
-		 * Direction.UP/DOWN handle propagation skipping across nodes which don't contain the
-		 * specific member, thus having no direct reference.
-		 *
-		 * isVirtual && ... handles propagation to an existing matching virtual member, which
-		 * spawns a new initial node from the propagation perspective. This is necessary as
-		 * different branches of the hierarchy tree that were not visited before may access it.
-		 */
+	static boolean propagatesUp(Direction dir, boolean isVirtual, MemberInstance member) {
+		return dir == Direction.ANY || dir == Direction.UP || changesDirection(isVirtual, member);
+	}
 
-		if (dir == Direction.ANY || dir == Direction.UP || isVirtual && member != null && (member.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0) {
-			for (ClassInstance node : parents) {
-				if (visitedUp.add(node)) {
-					node.propagate(type, originatingCls, idSrc, nameDst,
-							Direction.UP, isVirtual, fromBridge,
-							false, visitedUp, visitedDown);
-				}
-			}
-		}
+	static boolean propagatesDown(Direction dir, boolean isVirtual, MemberInstance member) {
+		return dir == Direction.ANY || dir == Direction.DOWN || changesDirection(isVirtual, member);
+	}
 
-		if (dir == Direction.ANY || dir == Direction.DOWN || isVirtual && member != null && (member.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0) {
-			for (ClassInstance node : children) {
-				if (visitedDown.add(node)) {
-					node.propagate(type, originatingCls, idSrc, nameDst,
-							Direction.DOWN, isVirtual, fromBridge,
-							false, visitedUp, visitedDown);
-				}
-			}
-		}
+	private static boolean changesDirection(boolean isVirtual, MemberInstance member) {
+		return isVirtual && member != null && (member.access & (Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE)) == 0;
 	}
 
 	@Override
@@ -364,6 +411,7 @@ public final class ClassInstance implements TrClass {
 
 	public boolean isAssignableFrom(ClassInstance cls) {
 		if (cls == this) return true;
+		if (context != null && cls.context == context) return context.subtypes.isSubtype(cls, this);
 
 		if (isInterface()) {
 			Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -452,64 +500,22 @@ public final class ClassInstance implements TrClass {
 		String subName = subDesc.substring(subDescStart, subDescEnd);
 
 		ClassInstance superCls = context.getClass(superName);
-		if (superCls != null && superCls.children.isEmpty()) return false;
+		if (superCls == null || superCls.children.isEmpty()) return false;
 
 		ClassInstance subCls = context.getClass(subName);
 
-		if (subCls != null) { // sub class known, search upwards
-			if (superCls == null || superCls.isInterface()) {
-				Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
-				Deque<ClassInstance> queue = new ArrayDeque<>();
-				visited.add(subCls);
-
-				do {
-					for (ClassInstance parent : subCls.parents) {
-						if (parent.name.equals(superName)) return true;
-
-						if (visited.add(parent)) {
-							queue.addLast(parent);
-						}
-					}
-				} while ((subCls = queue.pollFirst()) != null);
-			} else {
-				do {
-					String curSuperName = subCls.superName;
-
-					if (curSuperName.equals(superName)) return true;
-					if (curSuperName.equals(objectClassName)) return false;
-
-					subCls = context.getClass(curSuperName);
-				} while (subCls != null);
-			}
-		} else if (superCls != null) { // only super class known, search down
-			Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
-			Deque<ClassInstance> queue = new ArrayDeque<>();
-			visited.add(superCls);
-
-			do {
-				for (ClassInstance child : superCls.children) {
-					if (child.name.equals(subName)) return true;
-
-					if (visited.add(child)) {
-						queue.addLast(child);
-					}
-				}
-			} while ((superCls = queue.pollFirst()) != null);
-		}
-
-		// no match or not enough information (incomplete class path)
-
-		return false;
+		// both have to be known, otherwise there's no match or not enough information (incomplete class path)
+		return subCls != null && context.subtypes.isSubtype(subCls, superCls);
 	}
 
 	@Override
 	public MemberInstance getField(String name, String desc) {
-		return members.get(MemberInstance.getFieldId(name, desc, tr.ignoreFieldDesc));
+		return members.get(MemberType.FIELD, name, desc);
 	}
 
 	@Override
 	public MemberInstance getMethod(String name, String desc) {
-		return members.get(MemberInstance.getMethodId(name, desc));
+		return members.get(MemberType.METHOD, name, desc);
 	}
 
 	public MemberInstance getMember(MemberType type, String id) {
@@ -520,7 +526,7 @@ public final class ClassInstance implements TrClass {
 	public Collection<? extends TrField> getFields() {
 		List<TrField> ret = new ArrayList<>(members.size());
 
-		for (MemberInstance m : members.values()) {
+		for (MemberInstance m : members) {
 			if (m.isField()) ret.add(m);
 		}
 
@@ -531,7 +537,7 @@ public final class ClassInstance implements TrClass {
 	public Collection<? extends TrMethod> getMethods() {
 		List<TrMethod> ret = new ArrayList<>(members.size());
 
-		for (MemberInstance m : members.values()) {
+		for (MemberInstance m : members) {
 			if (m.isMethod()) ret.add(m);
 		}
 
@@ -540,14 +546,14 @@ public final class ClassInstance implements TrClass {
 
 	@Override
 	public Collection<MemberInstance> getMembers() {
-		return members.values();
+		return members;
 	}
 
 	@Override
 	public Collection<TrField> getFields(String name, String desc, boolean isDescPrefix, Predicate<TrField> filter, Collection<TrField> out) {
 		if (out == null) out = new ArrayList<>(members.size());
 
-		for (MemberInstance m : members.values()) {
+		for (MemberInstance m : members) {
 			if (m.isField() && matches(m, name, desc, isDescPrefix, filter)) out.add(m);
 		}
 
@@ -558,7 +564,7 @@ public final class ClassInstance implements TrClass {
 	public Collection<TrMethod> getMethods(String name, String desc, boolean isDescPrefix, Predicate<TrMethod> filter, Collection<TrMethod> out) {
 		if (out == null) out = new ArrayList<>(members.size());
 
-		for (MemberInstance m : members.values()) {
+		for (MemberInstance m : members) {
 			if (m.isMethod() && matches(m, name, desc, isDescPrefix, filter)) out.add(m);
 		}
 
@@ -579,22 +585,122 @@ public final class ClassInstance implements TrClass {
 		MemberInstance member = getMember(type, id);
 		if (member != null) return member;
 
+		MemberTable table = resolutionTable;
+
+		if (table != null) { // precomputed, ids without entry don't resolve
+			if (tr.countResolves) context.resolveHits.increment();
+
+			return table.get(id);
+		}
+
 		// get from cache
 		member = resolvedMembers.get(id);
 
 		if (member == null) {
+			if (tr.countResolves) context.resolveMisses.increment();
+
 			// compute
 			member = type == MemberType.FIELD ? resolveField(id) : resolveMethod(id);
 			assert member != null;
 
-			// put in cache
-			MemberInstance prev = resolvedMembers.putIfAbsent(id, member);
+			// put in cache, may get evicted depending on the cache policy
+			MemberInstance prev = resolvedMembers.putIfAbsent(id, member, tr.countResolves ? context.resolveCacheEvictions : null);
 			if (prev != null) member = prev;
+		} else if (tr.countResolves) {
+			context.resolveHits.increment();
 		}
 
 		return member != nullMember ? member : null;
 	}
 
+	/**
+	 * Determine whether any member got a new name assigned, without creating the not yet accessed members of a MRJ
+	 * copy. Those can't have one.
+	 */
+	boolean hasMappedMembers() {
+		return members.anyPresent(member -> member.getNewMappedName() != null);
+	}
+
+	/**
+	 * Forget all cached resolution results, required after the hierarchy above this class changed.
+	 */
+	void clearResolvedMembers() {
+		resolvedMembers.clear();
+		resolutionTable = null;
+	}
+
+	/**
+	 * Precompute the resolution results for all members this class inherits, replacing the lookups through the
+	 * hierarchy in {@link #resolve}.
+	 *
+	 * <p>The table is derived from the super class' table, which has to be up to date already. Only the members of
+	 * super interfaces get resolved individually since their selection depends on the whole hierarchy.
+	 */
+	void buildResolutionTable() {
+		MemberTable table = new MemberTable(tr.ignoreFieldDesc);
+		ClassInstance superCls = getSuperClass();
+
+		if (superCls != null) {
+			// members resolved through the super class chain, those from interfaces are redone below
+			if (superCls.resolutionTable != null) {
+				for (MemberInstance member : superCls.resolutionTable) {
+					if (!member.cls.isInterface()) table.put(member);
+				}
+			}
+
+			for (MemberInstance member : superCls.members) {
+				table.put(member);
+			}
+		}
+
+		Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		MemberTable resolved = new MemberTable(tr.ignoreFieldDesc); // by id, the members themselves are irrelevant
+		Deque<ClassInstance> queue = new ArrayDeque<>(parents);
+		ClassInstance cls;
+
+		visited.addAll(parents);
+
+		while ((cls = queue.pollFirst()) != null) {
+			if (cls.isInterface()) {
+				for (MemberInstance m : cls.members) {
+					MemberInstance member;
+
+					if (m.type == MemberType.FIELD) {
+						if (resolved.putIfAbsent(m) != null) continue;
+
+						member = resolveField(m.getId()); // interface fields take precedence over super class fields
+					} else {
+						if (table.get(m.type, m.name, m.desc) != null || resolved.putIfAbsent(m) != null) continue; // super class chain methods take precedence
+
+						member = resolveMethod(m.getId());
+					}
+
+					if (member != nullMember) table.put(member);
+				}
+			}
+
+			for (ClassInstance parent : cls.parents) {
+				if (visited.add(parent)) queue.addLast(parent);
+			}
+		}
+
+		// own members are never looked up, copy the rest into a table of exactly the required size
+
+		int size = 0;
+
+		for (MemberInstance member : table) {
+			if (members.get(member.type, member.name, member.desc) == null) size++;
+		}
+
+		MemberTable ret = new MemberTable(tr.ignoreFieldDesc, size);
+
+		for (MemberInstance member : table) {
+			if (members.get(member.type, member.name, member.desc) == null) ret.put(member);
+		}
+
+		resolutionTable = ret;
+	}
+
 	private MemberInstance resolveField(String id) {
 		Deque<ClassInstance> queue = new ArrayDeque<>();
 		Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -865,18 +971,17 @@ public final class ClassInstance implements TrClass {
 		}
 	}
 
+	/**
+	 * Create a copy of this class for a higher MRJ version state.
+	 *
+	 * <p>The copy shares the member table index with this class, its own members are only created on first access.
+	 */
 	ClassInstance constructMrjCopy(MrjState newContext) {
 		// isInput should be false, since the MRJ copy should not be emitted
-		ClassInstance copy = new ClassInstance(tr, false, inputTags, srcPath, data);
+		ClassInstance copy = new ClassInstance(tr, false, inputTags, srcPath, data, this);
 		copy.init(mrjVersion, name, signature, superName, access, interfaces);
 		copy.setContext(newContext);
 
-		for (MemberInstance member : members.values()) {
-			copy.addMember(new MemberInstance(member.type, copy, member.name, member.desc, member.access, member.index));
-		}
-
-		// set the origin
-		copy.mrjOrigin = mrjOrigin;
 		return copy;
 	}
 
@@ -914,11 +1019,14 @@ public final class ClassInstance implements TrClass {
 	private volatile InputTag[] inputTags; // cow input tag list, null for none
 	final Path srcPath;
 	byte[] data;
+	String[] referencedClasses; // classes named in the constant pool of an input, only recorded for the package access pre-pass
 	private ClassInstance mrjOrigin;
-	private final Map<String, MemberInstance> members = new HashMap<>(); // methods and fields are distinct due to their different desc separators
-	private final ConcurrentMap<String, MemberInstance> resolvedMembers = new ConcurrentHashMap<>();
+	private final MemberTable members; // methods and fields are distinct due to their different desc separators
+	private final ResolveCache resolvedMembers;
+	private MemberTable resolutionTable; // all resolvable inherited members if precomputed, otherwise null
 	final Set<ClassInstance> parents = new HashSet<>();
 	final Set<ClassInstance> children = new HashSet<>();
+	int ordinal; // dense index within the owning MrjState
 	private String name;
 	private int mrjVersion;
 	private String superName;
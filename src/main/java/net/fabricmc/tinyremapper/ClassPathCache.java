@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+/**
+ * On-disk cache for the analysis results of class path archives.
+ *
+ * <p>Every archive gets its own cache file named after a hash of its absolute path. The file records the archive's
+ * size, modification time and central directory checksum, a mismatch in any of those invalidates the entry. The
+ * content is a string table followed by the class headers (name, signature, super class, interfaces, access) and their
+ * members, which is all {@link TinyRemapper} gathers from non-input classes.
+ */
+final class ClassPathCache {
+	ClassPathCache(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Rebuild the classes of the supplied archive from the cache.
+	 *
+	 * @return the cached classes or null if there is no up to date cache entry
+	 */
+	List<ClassInstance> load(TinyRemapper tr, ChannelZipFile zip, InputTag[] tags, Path srcPath) {
+		Path file = getCacheFile(zip.getPath());
+		byte[] data;
+
+		try {
+			data = Files.readAllBytes(file);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			System.out.printf("Can't read class path cache %s: %s%n", file, e);
+			return null;
+		}
+
+		try (DataInputStream is = new DataInputStream(new ByteArrayInputStream(data))) {
+			if (is.readInt() != MAGIC || is.readInt() != VERSION) return null;
+			if (!readString(is).equals(getKey(zip.getPath()))) return null;
+			if (is.readLong() != zip.getSize() || is.readLong() != getModificationTime(zip.getPath()) || is.readLong() != zip.getCentralDirectoryChecksum()) return null;
+
+			String[] strings = new String[readVarInt(is)];
+
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString(is);
+			}
+
+			if (tr.stringPool != null) tr.stringPool.intern(strings, null);
+
+			int classCount = readVarInt(is);
+			List<ClassInstance> ret = new ArrayList<>(classCount);
+
+			for (int i = 0; i < classCount; i++) {
+				int mrjVersion = is.readInt();
+				int access = readVarInt(is);
+				String name = readRef(is, strings);
+				String signature = readRef(is, strings);
+				String superName = readRef(is, strings);
+				String[] interfaces = new String[readVarInt(is)];
+
+				for (int j = 0; j < interfaces.length; j++) {
+					interfaces[j] = readRef(is, strings);
+				}
+
+				ClassInstance cls = new ClassInstance(tr, false, tags, srcPath, null);
+				cls.init(mrjVersion, name, signature, superName, access, interfaces);
+
+				int memberCount = readVarInt(is);
+
+				for (int j = 0; j < memberCount; j++) {
+					MemberType type = is.readBoolean() ? MemberType.METHOD : MemberType.FIELD;
+					int memberAccess = readVarInt(is);
+					String memberName = readRef(is, strings);
+					String desc = readRef(is, strings);
+
+					cls.addMember(new MemberInstance(type, cls, memberName, desc, memberAccess, j));
+				}
+
+				ret.add(cls);
+			}
+
+			return ret;
+		} catch (IOException | RuntimeException e) { // truncated or otherwise corrupt entry
+			System.out.printf("Ignoring invalid class path cache %s: %s%n", file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Record the analysis results for the supplied archive, replacing any previous cache entry atomically.
+	 */
+	void store(ChannelZipFile zip, List<ClassInstance> classes) {
+		Path file = getCacheFile(zip.getPath());
+		Path tmpFile = null;
+
+		try {
+			Files.createDirectories(dir);
+			tmpFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				write(zip, classes, os);
+			}
+
+			try {
+				Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			tmpFile = null;
+		} catch (IOException e) {
+			System.out.printf("Can't write class path cache %s: %s%n", file, e);
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static void write(ChannelZipFile zip, List<ClassInstance> classes, DataOutputStream os) throws IOException {
+		Map<String, Integer> stringIds = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+		List<List<MemberInstance>> members = new ArrayList<>(classes.size());
+
+		for (ClassInstance cls : classes) {
+			addString(cls.getName(), stringIds, strings);
+			addString(cls.getSignature(), stringIds, strings);
+			addString(cls.getSuperName(), stringIds, strings);
+
+			for (String iface : cls.getInterfaceNames0()) {
+				addString(iface, stringIds, strings);
+			}
+
+			List<MemberInstance> clsMembers = new ArrayList<>(cls.getMembers());
+			clsMembers.sort(Comparator.comparingInt(MemberInstance::getIndex)); // restores the same indices on load
+			members.add(clsMembers);
+
+			for (MemberInstance member : clsMembers) {
+				addString(member.name, stringIds, strings);
+				addString(member.desc, stringIds, strings);
+			}
+		}
+
+		os.writeInt(MAGIC);
+		os.writeInt(VERSION);
+		writeString(getKey(zip.getPath()), os);
+		os.writeLong(zip.getSize());
+		os.writeLong(getModificationTime(zip.getPath()));
+		os.writeLong(zip.getCentralDirectoryChecksum());
+
+		writeVarInt(strings.size(), os);
+
+		for (String s : strings) {
+			writeString(s, os);
+		}
+
+		writeVarInt(classes.size(), os);
+
+		for (int i = 0; i < classes.size(); i++) {
+			ClassInstance cls = classes.get(i);
+
+			os.writeInt(cls.getMrjVersion());
+			writeVarInt(cls.getAccess(), os);
+			writeRef(cls.getName(), stringIds, os);
+			writeRef(cls.getSignature(), stringIds, os);
+			writeRef(cls.getSuperName(), stringIds, os);
+
+			String[] interfaces = cls.getInterfaceNames0();
+			writeVarInt(interfaces.length, os);
+
+			for (String iface : interfaces) {
+				writeRef(iface, stringIds, os);
+			}
+
+			List<MemberInstance> clsMembers = members.get(i);
+			writeVarInt(clsMembers.size(), os);
+
+			for (MemberInstance member : clsMembers) {
+				os.writeBoolean(member.type == MemberType.METHOD);
+				writeVarInt(member.access, os);
+				writeRef(member.name, stringIds, os);
+				writeRef(member.desc, stringIds, os);
+			}
+		}
+	}
+
+	private Path getCacheFile(Path archive) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(getKey(archive).getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(FILE_PREFIX.length() + 32 + FILE_SUFFIX.length());
+			sb.append(FILE_PREFIX);
+
+			for (int i = 0; i < 16; i++) {
+				sb.append(Character.forDigit((hash[i] >>> 4) & 0xf, 16));
+				sb.append(Character.forDigit(hash[i] & 0xf, 16));
+			}
+
+			sb.append(FILE_SUFFIX);
+
+			return dir.resolve(sb.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String getKey(Path archive) {
+		return archive.toAbsolutePath().normalize().toString();
+	}
+
+	private static long getModificationTime(Path archive) throws IOException {
+		return Files.getLastModifiedTime(archive).toMillis();
+	}
+
+	private static void addString(String s, Map<String, Integer> ids, List<String> strings) {
+		if (s != null && ids.putIfAbsent(s, strings.size()) == null) strings.add(s);
+	}
+
+	private static void writeRef(String s, Map<String, Integer> ids, DataOutputStream os) throws IOException {
+		writeVarInt(s == null ? 0 : ids.get(s) + 1, os);
+	}
+
+	private static String readRef(DataInputStream is, String[] strings) throws IOException {
+		int ref = readVarInt(is);
+
+		return ref == 0 ? null : strings[ref - 1];
+	}
+
+	private static void writeString(String s, DataOutputStream os) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8); // not writeUTF, signatures may exceed its 64k limit
+		writeVarInt(bytes.length, os);
+		os.write(bytes);
+	}
+
+	private static String readString(DataInputStream is) throws IOException {
+		byte[] bytes = new byte[readVarInt(is)];
+		is.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(int value, OutputStream os) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			os.write(value & 0x7f | 0x80);
+			value >>>= 7;
+		}
+
+		os.write(value);
+	}
+
+	private static int readVarInt(DataInputStream is) throws IOException {
+		int ret = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			if (shift > 28) throw new IOException("invalid var int");
+
+			b = is.readUnsignedByte();
+			ret |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return ret;
+	}
+
+	private static final int MAGIC = 0x54524350; // TRCP
+	private static final int VERSION = 1;
+	private static final String FILE_PREFIX = "cp-";
+	private static final String FILE_SUFFIX = ".bin";
+
+	private final Path dir;
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Binary mapping format holding the final {@link IMappingProvider} tables for a single namespace pair.
+ *
+ * <p>The file starts with the namespaces and a table of all distinct strings, followed by the class, field, method and
+ * local tables as string table references. Field and method keys are stored already in the owner/id form
+ * {@link TinyRemapper} uses, so loading is limited to decoding every distinct string once and filling the maps.
+ */
+final class CompiledMappings {
+	/**
+	 * Load the supplied mapping provider and write its tables in the compiled format.
+	 */
+	static void compile(IMappingProvider mappings, String fromM, String toM, Path output) throws IOException {
+		Map<String, String> classMap = new TreeMap<>();
+		Map<String, String> fieldMap = new TreeMap<>();
+		Map<String, String> methodMap = new TreeMap<>();
+		Map<String, String[]> localMap = new TreeMap<>();
+
+		mappings.load(classMap, fieldMap, methodMap, localMap);
+
+		Map<String, Integer> stringIds = new HashMap<>();
+		List<String> strings = new ArrayList<>();
+
+		addStrings(classMap, stringIds, strings);
+		addStrings(fieldMap, stringIds, strings);
+		addStrings(methodMap, stringIds, strings);
+
+		for (Map.Entry<String, String[]> entry : localMap.entrySet()) {
+			addString(entry.getKey(), stringIds, strings);
+
+			for (String name : entry.getValue()) {
+				addString(name, stringIds, strings);
+			}
+		}
+
+		try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+			os.writeInt(MAGIC);
+			os.writeInt(VERSION);
+			writeString(fromM, os);
+			writeString(toM, os);
+
+			byte[][] encoded = new byte[strings.size()][];
+			int totalSize = 0;
+
+			for (int i = 0; i < encoded.length; i++) {
+				encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+				totalSize += encoded[i].length;
+			}
+
+			writeVarInt(encoded.length, os);
+			writeVarInt(totalSize, os);
+
+			for (byte[] bytes : encoded) {
+				writeVarInt(bytes.length, os);
+			}
+
+			for (byte[] bytes : encoded) {
+				os.write(bytes);
+			}
+
+			writeTable(classMap, stringIds, os);
+			writeTable(fieldMap, stringIds, os);
+			writeTable(methodMap, stringIds, os);
+
+			writeVarInt(localMap.size(), os);
+
+			for (Map.Entry<String, String[]> entry : localMap.entrySet()) {
+				writeRef(entry.getKey(), stringIds, os);
+				writeVarInt(entry.getValue().length, os);
+
+				for (String name : entry.getValue()) {
+					writeRef(name, stringIds, os);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read compiled mappings into the supplied maps, verifying they were compiled for the expected namespaces.
+	 */
+	static void load(Path file, String fromM, String toM,
+			Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)); // every string gets copied out anyway, no need to keep the file mapped
+
+		try {
+			load(buffer, file, fromM, toM, classMap, fieldMap, methodMap, localMap);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("truncated compiled mapping file: "+file, e);
+		}
+	}
+
+	private static void load(ByteBuffer buffer, Path file, String fromM, String toM,
+			Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap) throws IOException {
+		if (buffer.getInt() != MAGIC) throw new IOException("not a compiled mapping file: "+file);
+		if (buffer.getInt() != VERSION) throw new IOException("unsupported compiled mapping version in "+file);
+
+		String fileFrom = readString(buffer);
+		String fileTo = readString(buffer);
+
+		if (!fileFrom.equals(fromM) || !fileTo.equals(toM)) {
+			throw new IOException(String.format("compiled mappings %s are for %s -> %s, not %s -> %s", file, fileFrom, fileTo, fromM, toM));
+		}
+
+		String[] strings = new String[readLength(buffer)];
+		byte[] stringData = new byte[readLength(buffer)];
+		int[] lengths = new int[strings.length];
+
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = readLength(buffer);
+		}
+
+		buffer.get(stringData); // single bulk copy for all strings
+
+		for (int i = 0, offset = 0; i < strings.length; i++) {
+			if (lengths[i] > stringData.length - offset) throw new IOException("invalid string length");
+
+			strings[i] = new String(stringData, offset, lengths[i], StandardCharsets.UTF_8);
+			offset += lengths[i];
+		}
+
+		readTable(buffer, strings, classMap);
+		readTable(buffer, strings, fieldMap);
+		readTable(buffer, strings, methodMap);
+
+		for (int i = 0, count = readVarInt(buffer); i < count; i++) {
+			String key = readRef(buffer, strings);
+			String[] names = new String[readLength(buffer)];
+
+			for (int j = 0; j < names.length; j++) {
+				names[j] = readRef(buffer, strings);
+			}
+
+			localMap.put(key, names);
+		}
+	}
+
+	private static void addStrings(Map<String, String> map, Map<String, Integer> ids, List<String> strings) {
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			addString(entry.getKey(), ids, strings);
+			addString(entry.getValue(), ids, strings);
+		}
+	}
+
+	private static void addString(String s, Map<String, Integer> ids, List<String> strings) {
+		if (s != null && ids.putIfAbsent(s, strings.size()) == null) strings.add(s);
+	}
+
+	private static void writeTable(Map<String, String> map, Map<String, Integer> ids, DataOutputStream os) throws IOException {
+		writeVarInt(map.size(), os);
+
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			writeRef(entry.getKey(), ids, os);
+			writeRef(entry.getValue(), ids, os);
+		}
+	}
+
+	private static void readTable(ByteBuffer buffer, String[] strings, Map<String, String> out) throws IOException {
+		for (int i = 0, count = readVarInt(buffer); i < count; i++) {
+			out.put(readRef(buffer, strings), readRef(buffer, strings));
+		}
+	}
+
+	private static void writeRef(String s, Map<String, Integer> ids, OutputStream os) throws IOException {
+		writeVarInt(s == null ? 0 : ids.get(s) + 1, os);
+	}
+
+	private static String readRef(ByteBuffer buffer, String[] strings) throws IOException {
+		int ref = readVarInt(buffer);
+		if (ref < 0 || ref > strings.length) throw new IOException("invalid string reference");
+
+		return ref == 0 ? null : strings[ref - 1];
+	}
+
+	private static void writeString(String s, OutputStream os) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length, os);
+		os.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[readLength(buffer)];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(int value, OutputStream os) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			os.write(value & 0x7f | 0x80);
+			value >>>= 7;
+		}
+
+		os.write(value);
+	}
+
+	/**
+	 * Read a count or byte length, each counted element takes at least one of the remaining bytes.
+	 */
+	private static int readLength(ByteBuffer buffer) throws IOException {
+		int ret = readVarInt(buffer);
+		if (ret < 0 || ret > buffer.remaining()) throw new IOException("invalid length");
+
+		return ret;
+	}
+
+	private static int readVarInt(ByteBuffer buffer) throws IOException {
+		int ret = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			if (shift > 28) throw new IOException("invalid var int");
+
+			b = buffer.get() & 0xff;
+			ret |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return ret;
+	}
+
+	private static final int MAGIC = 0x54524d43; // TRMC
+	private static final int VERSION = 1;
+}
@@ -19,6 +19,7 @@
 package net.fabricmc.tinyremapper;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 @FunctionalInterface
 public interface IMappingProvider {
@@ -28,6 +29,18 @@ public interface IMappingProvider {
 		load(classMap, fieldMap, methodMap);
 	}
 
+	/**
+	 * Load the mappings, optionally distributing the work across the supplied executor.
+	 *
+	 * <p>The maps aren't thread safe, implementations have to fill them from the calling thread. The caller must not be
+	 * a thread of {@code executor}.
+	 *
+	 * @param executor executor for parallel processing, null to load sequentially
+	 */
+	default void load(Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap, ExecutorService executor) {
+		load(classMap, fieldMap, methodMap, localMap);
+	}
+
 	default String suggestLocalName(String type, boolean plural) {
 		return null;
 	}
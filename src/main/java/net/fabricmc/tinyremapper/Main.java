@@ -56,6 +56,7 @@ public class Main {
 		NonClassCopyMode ncCopyMode = NonClassCopyMode.FIX_META_INF;
 		int threads = -1;
 		boolean enableMixin = false;
+		boolean printMetrics = false;
 
 		for (String arg : rawArgs) {
 			if (arg.startsWith("--")) {
@@ -135,6 +136,9 @@ public class Main {
 				case "mixin":
 					enableMixin = true;
 					break;
+				case "printmetrics":
+					printMetrics = true;
+					break;
 				default:
 					System.out.println("invalid argument: "+arg+".");
 					System.exit(1);
@@ -225,6 +229,10 @@ public class Main {
 			builder = builder.extension(new MixinExtension());
 		}
 
+		if (printMetrics) {
+			builder = builder.metricsListener(System.out::println);
+		}
+
 		TinyRemapper remapper = builder.build();
 
 		try (OutputConsumerPath outputConsumer = new OutputConsumerPath.Builder(output).build()) {
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+/**
+ * Member mappings grouped by owner class and keyed by member id.
+ *
+ * <p>The mapping providers fill the flat owner/id keyed maps from {@link #getAcceptor}, which split every key once
+ * while loading and store it here directly, so propagation and lookups don't have to split or concatenate the keys
+ * again and no flat copy is retained.
+ */
+final class MemberMappings {
+	static final class Mapping {
+		Mapping(MemberType type, String id, String name, String newName) {
+			this.type = type;
+			this.id = id;
+			this.name = name;
+			this.newName = newName;
+		}
+
+		final MemberType type;
+		final String id;
+		final String name;
+		final String newName;
+	}
+
+	static final class OwnerMappings {
+		OwnerMappings(String owner) {
+			this.owner = owner;
+		}
+
+		String get(MemberType type, String id) {
+			Mapping ret = getMap(type).get(id);
+
+			return ret != null ? ret.newName : null;
+		}
+
+		Map<String, Mapping> getMap(MemberType type) {
+			return type == MemberType.METHOD ? methods : fields;
+		}
+
+		/**
+		 * @return the mappings actually changing the member name.
+		 */
+		List<Mapping> getRenames() {
+			return renames;
+		}
+
+		final String owner;
+		final Map<String, Mapping> methods = new HashMap<>();
+		final Map<String, Mapping> fields = new HashMap<>();
+		private final List<Mapping> renames = new ArrayList<>();
+	}
+
+	/**
+	 * @param stringPool pool for the owners, names and new names to retain, may be null
+	 */
+	MemberMappings(boolean ignoreFieldDesc, StringPool stringPool) {
+		this.ignoreFieldDesc = ignoreFieldDesc;
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Get a map accepting the mappings of the supplied type in the flat {@link IMappingProvider} form.
+	 *
+	 * <p>The keys are the owner followed by a slash and the member id. Putting a mapping stores it in the per owner
+	 * tables right away, reading goes through the same tables. Removing isn't supported.
+	 */
+	Map<String, String> getAcceptor(MemberType type) {
+		return type == MemberType.METHOD ? methodAcceptor : fieldAcceptor;
+	}
+
+	private String put(MemberType type, String key, String newName) {
+		int nameStart = getNameStart(type, key);
+		String owner = nameStart >= 0 ? key.substring(0, nameStart) : "";
+		String id = key.substring(nameStart + 1);
+		String name = MemberInstance.getNameFromId(type, id, ignoreFieldDesc);
+		assert newName.indexOf('/') < 0;
+
+		if (stringPool != null) {
+			boolean nameIsId = name == id;
+
+			owner = stringPool.intern(owner);
+			name = stringPool.intern(name);
+			newName = stringPool.intern(newName);
+			if (nameIsId) id = name; // retain the pooled instance for both
+		}
+
+		OwnerMappings ownerMappings = owners.computeIfAbsent(owner, OwnerMappings::new);
+		Mapping prev = ownerMappings.getMap(type).put(id, new Mapping(type, id, name, newName));
+
+		if (prev != null) return prev.newName;
+
+		if (type == MemberType.METHOD) {
+			methodCount++;
+		} else {
+			fieldCount++;
+		}
+
+		return null;
+	}
+
+	private String getFlat(MemberType type, String key) {
+		int nameStart = getNameStart(type, key);
+
+		return get(type, nameStart >= 0 ? key.substring(0, nameStart) : "", key.substring(nameStart + 1));
+	}
+
+	private static int getNameStart(MemberType type, String key) {
+		int descStart = type == MemberType.METHOD ? key.indexOf('(') : key.indexOf(";;");
+		if (descStart < 0) descStart = key.length();
+
+		return key.lastIndexOf('/', descStart - 1);
+	}
+
+	/**
+	 * Finish loading, determining the renaming mappings of every owner.
+	 */
+	void finish() {
+		for (OwnerMappings ownerMappings : owners.values()) {
+			ownerMappings.renames.clear();
+			addRenames(ownerMappings.methods, ownerMappings.renames);
+			addRenames(ownerMappings.fields, ownerMappings.renames);
+		}
+	}
+
+	private static void addRenames(Map<String, Mapping> mappings, List<Mapping> out) {
+		for (Mapping mapping : mappings.values()) {
+			if (!mapping.name.equals(mapping.newName)) out.add(mapping);
+		}
+	}
+
+	String get(MemberType type, String owner, String id) {
+		OwnerMappings ownerMappings = owners.get(owner);
+
+		return ownerMappings != null ? ownerMappings.get(type, id) : null;
+	}
+
+	Collection<OwnerMappings> getOwners() {
+		return owners.values();
+	}
+
+	/**
+	 * @return the total number of member mappings.
+	 */
+	int size() {
+		return methodCount + fieldCount;
+	}
+
+	private final class Acceptor extends AbstractMap<String, String> {
+		Acceptor(MemberType type) {
+			this.type = type;
+		}
+
+		@Override
+		public String put(String key, String value) {
+			return MemberMappings.this.put(type, key, value);
+		}
+
+		@Override
+		public String get(Object key) {
+			return key instanceof String ? getFlat(type, (String) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public int size() {
+			return type == MemberType.METHOD ? methodCount : fieldCount;
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new Iterator<Map.Entry<String, String>>() {
+						@Override
+						public boolean hasNext() {
+							while (!mappings.hasNext()) {
+								if (!ownerIt.hasNext()) return false;
+
+								owner = ownerIt.next();
+								mappings = owner.getMap(type).values().iterator();
+							}
+
+							return true;
+						}
+
+						@Override
+						public Map.Entry<String, String> next() {
+							if (!hasNext()) throw new NoSuchElementException();
+
+							Mapping mapping = mappings.next();
+							String key = owner.owner.isEmpty() ? mapping.id : owner.owner+"/"+mapping.id;
+
+							return new AbstractMap.SimpleImmutableEntry<>(key, mapping.newName);
+						}
+
+						private final Iterator<OwnerMappings> ownerIt = owners.values().iterator();
+						private OwnerMappings owner;
+						private Iterator<Mapping> mappings = Collections.emptyIterator();
+					};
+				}
+
+				@Override
+				public int size() {
+					return Acceptor.this.size();
+				}
+			};
+		}
+
+		private final MemberType type;
+	}
+
+	static final MemberMappings EMPTY = new MemberMappings(false, null);
+
+	private final boolean ignoreFieldDesc;
+	private final StringPool stringPool;
+	private final Map<String, OwnerMappings> owners = new HashMap<>();
+	private final Map<String, String> methodAcceptor = new Acceptor(MemberType.METHOD);
+	private final Map<String, String> fieldAcceptor = new Acceptor(MemberType.FIELD);
+	private int methodCount;
+	private int fieldCount;
+}
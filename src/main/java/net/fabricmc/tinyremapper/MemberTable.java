@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+/**
+ * Compact, insertion ordered member storage keyed by member id.
+ *
+ * <p>The members are kept in a dense array next to their id hashes, an open addressed slot array with linear probing
+ * maps the hashes to them. Ids are never materialized, the hash of the name+separator+desc concatenation is derived
+ * from the cached hashes of its parts and lookups by id compare the parts in place. This avoids a map entry and id
+ * string per member, which dominates the footprint of class path classes that are only needed for hierarchy
+ * information and resolution.
+ *
+ * <p>The collection view is unmodifiable, members are only added through {@link #put} and never removed.
+ *
+ * <p>The table of a MRJ copy shares the index and the original members with the table of the class it was copied
+ * from, which must not change anymore. It only holds its own member instances for the state specific mapping results,
+ * those are created on first access.
+ */
+final class MemberTable extends AbstractCollection<MemberInstance> {
+	MemberTable(boolean ignoreFieldDesc) {
+		this(ignoreFieldDesc, 0);
+	}
+
+	MemberTable(boolean ignoreFieldDesc, int expectedSize) {
+		this.ignoreFieldDesc = ignoreFieldDesc;
+
+		if (expectedSize > 0) {
+			entries = new MemberInstance[expectedSize];
+			hashes = new int[expectedSize];
+			slots = new int[getSlotCount(expectedSize)];
+		} else {
+			entries = EMPTY_ENTRIES;
+			hashes = EMPTY_HASHES;
+			slots = EMPTY_HASHES;
+		}
+
+		this.owner = null;
+		this.copies = null;
+	}
+
+	/**
+	 * Create the table for a MRJ copy of the origin table's class.
+	 *
+	 * @param owner the MRJ copy
+	 */
+	MemberTable(MemberTable origin, ClassInstance owner) {
+		this.ignoreFieldDesc = origin.ignoreFieldDesc;
+		this.entries = origin.entries; // members of the root origin, copies of copies share them as well
+		this.hashes = origin.hashes;
+		this.slots = origin.slots;
+		this.size = origin.size;
+		this.owner = owner;
+		this.copies = new AtomicReferenceArray<>(size);
+	}
+
+	MemberInstance get(String id) {
+		if (size == 0) return null;
+
+		int hash = id.hashCode();
+		int mask = slots.length - 1;
+
+		for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+			int entry = slots[i] - 1;
+			if (entry < 0) return null;
+
+			if (hashes[entry] == hash && matches(entries[entry], id)) return getEntry(entry);
+		}
+	}
+
+	MemberInstance get(MemberType type, String name, String desc) {
+		if (size == 0) return null;
+
+		int hash = hash(type, name, desc, ignoreFieldDesc);
+		int mask = slots.length - 1;
+
+		for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+			int entry = slots[i] - 1;
+			if (entry < 0) return null;
+
+			if (hashes[entry] == hash && matches(entries[entry], type, name, desc)) return getEntry(entry);
+		}
+	}
+
+	/**
+	 * Add a member, replacing any present member with the same id.
+	 *
+	 * @return the replaced member or null if there was none
+	 */
+	MemberInstance put(MemberInstance member) {
+		return put(member, true);
+	}
+
+	/**
+	 * Add a member unless there is already a member with the same id.
+	 *
+	 * @return the present member or null if the member got added
+	 */
+	MemberInstance putIfAbsent(MemberInstance member) {
+		return put(member, false);
+	}
+
+	private MemberInstance put(MemberInstance member, boolean replace) {
+		if (owner != null) throw new UnsupportedOperationException("MRJ copy member tables are immutable");
+
+		int hash = hash(member.type, member.name, member.desc, ignoreFieldDesc);
+
+		if (size > 0) {
+			int mask = slots.length - 1;
+
+			for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+				int entry = slots[i] - 1;
+				if (entry < 0) break;
+
+				if (hashes[entry] == hash && matches(entries[entry], member.type, member.name, member.desc)) {
+					MemberInstance ret = entries[entry];
+					if (replace) entries[entry] = member;
+
+					return ret;
+				}
+			}
+		}
+
+		if (size == entries.length) {
+			int newLength = Math.max(INITIAL_CAPACITY, size * 2);
+			entries = Arrays.copyOf(entries, newLength);
+			hashes = Arrays.copyOf(hashes, newLength);
+		}
+
+		int entry = size++;
+		entries[entry] = member;
+		hashes[entry] = hash;
+
+		if (slots.length < getSlotCount(size)) {
+			rehash(getSlotCount(entries.length));
+		} else {
+			insertSlot(entry);
+		}
+
+		return null;
+	}
+
+	private MemberInstance getEntry(int entry) {
+		if (owner == null) return entries[entry];
+
+		MemberInstance ret = copies.get(entry);
+
+		if (ret == null) {
+			MemberInstance member = entries[entry];
+			ret = new MemberInstance(member.type, owner, member.name, member.desc, member.access, member.index);
+
+			if (!copies.compareAndSet(entry, null, ret)) ret = copies.get(entry); // lost a race with another thread
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine whether any member matches the predicate, skipping the members of a MRJ copy that weren't created yet.
+	 */
+	boolean anyPresent(Predicate<MemberInstance> predicate) {
+		for (int i = 0; i < size; i++) {
+			MemberInstance member = owner == null ? entries[i] : copies.get(i);
+
+			if (member != null && predicate.test(member)) return true;
+		}
+
+		return false;
+	}
+
+	private void rehash(int slotCount) {
+		slots = new int[slotCount];
+
+		for (int entry = 0; entry < size; entry++) {
+			insertSlot(entry);
+		}
+	}
+
+	private void insertSlot(int entry) {
+		int mask = slots.length - 1;
+		int i = spread(hashes[entry]) & mask;
+
+		while (slots[i] != 0) {
+			i = (i + 1) & mask;
+		}
+
+		slots[i] = entry + 1;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<MemberInstance> iterator() {
+		return new Iterator<MemberInstance>() {
+			@Override
+			public boolean hasNext() {
+				return pos < size;
+			}
+
+			@Override
+			public MemberInstance next() {
+				if (pos >= size) throw new NoSuchElementException();
+
+				return getEntry(pos++);
+			}
+
+			private int pos;
+		};
+	}
+
+	/**
+	 * Compute the hash of a member id without building it, equal to {@link MemberInstance#getId}'s hash code.
+	 */
+	static int hash(MemberType type, String name, String desc, boolean ignoreFieldDesc) {
+		if (type == MemberType.METHOD) { // name+desc
+			return name.hashCode() * pow31(desc.length()) + desc.hashCode();
+		} else if (ignoreFieldDesc) { // name
+			return name.hashCode();
+		} else { // name+";;"+desc
+			return (name.hashCode() * 31 * 31 + ';' * 31 + ';') * pow31(desc.length()) + desc.hashCode();
+		}
+	}
+
+	private static int pow31(int exp) {
+		int ret = 1;
+		int base = 31;
+
+		while (exp != 0) {
+			if ((exp & 1) != 0) ret *= base;
+			base *= base;
+			exp >>>= 1;
+		}
+
+		return ret;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int getSlotCount(int size) {
+		int ret = INITIAL_CAPACITY;
+
+		while (ret < size * 2) { // keep the load factor at or below 0.5, slots are only an int each
+			ret <<= 1;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine whether the member's id equals the supplied id.
+	 */
+	private boolean matches(MemberInstance member, String id) {
+		String name = member.name;
+		String desc = member.desc;
+
+		if (member.type == MemberType.METHOD) {
+			return id.length() == name.length() + desc.length()
+					&& id.startsWith(name)
+					&& id.startsWith(desc, name.length());
+		} else if (ignoreFieldDesc) {
+			return id.equals(name);
+		} else {
+			return id.length() == name.length() + 2 + desc.length()
+					&& id.startsWith(name)
+					&& id.startsWith(";;", name.length())
+					&& id.startsWith(desc, name.length() + 2);
+		}
+	}
+
+	/**
+	 * Determine whether the member's id equals the id of the supplied member properties.
+	 */
+	private boolean matches(MemberInstance member, MemberType type, String name, String desc) {
+		if (member.type == type) {
+			return member.name.equals(name) && (type == MemberType.FIELD && ignoreFieldDesc || member.desc.equals(desc));
+		} else { // ids of different member types may still be equal in degenerate cases
+			return matches(member, MemberInstance.getId(type, name, desc, ignoreFieldDesc));
+		}
+	}
+
+	private static final int INITIAL_CAPACITY = 4;
+	private static final MemberInstance[] EMPTY_ENTRIES = new MemberInstance[0];
+	private static final int[] EMPTY_HASHES = new int[0];
+
+	private final boolean ignoreFieldDesc;
+	private final ClassInstance owner; // MRJ copy owning the copied members, null for regular tables
+	private final AtomicReferenceArray<MemberInstance> copies; // MRJ copy members by entry, null for regular tables
+	private MemberInstance[] entries;
+	private int[] hashes;
+	private int[] slots; // entry index + 1 for each slot, 0 if empty
+	private int size;
+}
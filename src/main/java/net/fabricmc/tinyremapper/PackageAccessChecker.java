@@ -18,10 +18,19 @@
 
 package net.fabricmc.tinyremapper;
 
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
 import net.fabricmc.tinyremapper.api.TrMember.MemberType;
@@ -218,6 +227,207 @@ public final class PackageAccessChecker {
 		if (!memberAccessible) remapper.tr.membersToMakePublic.add(member);
 	}
 
+	/**
+	 * Collect the classes named in the constant pool of a class, including those within descriptors.
+	 *
+	 * <p>These cover all classes the checks may look at besides the ones in the class's own member descriptors.
+	 */
+	static String[] getReferencedClasses(ClassReader reader) {
+		Set<String> ret = new HashSet<>();
+		char[] buffer = new char[reader.getMaxStringLength()];
+
+		for (int i = 1, max = reader.getItemCount(); i < max; i++) {
+			int offset = reader.getItem(i);
+			if (offset == 0) continue; // second slot of a long or double
+
+			switch (reader.readByte(offset - 1)) {
+			case CONSTANT_CLASS: {
+				String name = reader.readUTF8(offset, buffer);
+
+				if (name.startsWith("[")) { // array class
+					addDescClasses(name, ret);
+				} else {
+					ret.add(name);
+				}
+
+				break;
+			}
+			case CONSTANT_NAME_AND_TYPE:
+				addDescClasses(reader.readUTF8(offset + 2, buffer), ret);
+				break;
+			case CONSTANT_METHOD_TYPE:
+				addDescClasses(reader.readUTF8(offset, buffer), ret);
+				break;
+			}
+		}
+
+		return ret.toArray(new String[0]);
+	}
+
+	/**
+	 * Determine whether remapping may break any access from an input class.
+	 *
+	 * <p>The input is expected to be valid, so an access can only break if the accessor or the accessed class changes
+	 * its package. The accessed class may also be any super class or interface declaring a member accessed through a
+	 * referenced class.
+	 *
+	 * @param movedHierarchies memoized results of {@link #isHierarchyMoved} for the class's MRJ state
+	 */
+	static boolean mayBreakAccess(ClassInstance cls, Map<ClassInstance, Boolean> movedHierarchies) {
+		AsmRemapper remapper = cls.getContext().remapper;
+		if (isMoved(cls.getName(), remapper)) return true;
+
+		for (String name : cls.referencedClasses) {
+			if (isHierarchyMoved(remapper.getClass(name), remapper, movedHierarchies)) return true;
+		}
+
+		Set<String> descClasses = new HashSet<>();
+
+		for (MemberInstance member : cls.getMembers()) {
+			addDescClasses(member.desc, descClasses);
+		}
+
+		for (String name : descClasses) {
+			if (isHierarchyMoved(remapper.getClass(name), remapper, movedHierarchies)) return true;
+		}
+
+		return false;
+	}
+
+	private static boolean isHierarchyMoved(ClassInstance cls, AsmRemapper remapper, Map<ClassInstance, Boolean> movedHierarchies) {
+		if (cls == null) return false; // not available, the checks skip it as well
+
+		Boolean ret = movedHierarchies.get(cls);
+		if (ret != null) return ret;
+
+		movedHierarchies.put(cls, false); // guard against circular hierarchies
+		ret = isMoved(cls.getName(), remapper);
+
+		if (!ret) {
+			for (ClassInstance parent : cls.parents) {
+				if (isHierarchyMoved(parent, remapper, movedHierarchies)) {
+					ret = true;
+					break;
+				}
+			}
+		}
+
+		movedHierarchies.put(cls, ret);
+
+		return ret;
+	}
+
+	private static boolean isMoved(String cls, AsmRemapper remapper) {
+		return !isSamePackage(cls, cls.lastIndexOf('/'), remapper.map(cls));
+	}
+
+	private static void addDescClasses(String desc, Set<String> out) {
+		int startPos = 0;
+		int pos;
+
+		while ((pos = desc.indexOf('L', startPos)) >= 0) {
+			int end = desc.indexOf(';', pos);
+			if (end < 0) return; // invalid, left to the checks
+
+			out.add(desc.substring(pos + 1, end));
+			startPos = end + 1;
+		}
+	}
+
+	/**
+	 * Check all accesses from an input class ahead of remapping it, printing and recording failures.
+	 *
+	 * <p>This runs the same checks as remapping with package access checking enabled, but only reads the original
+	 * class. Running it for all inputs before applying allows fixing the access flags within the remapping pass.
+	 */
+	static void checkInput(ClassInstance cls) {
+		new ClassReader(cls.data).accept(createChecker(null, cls.getContext().remapper), ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+	}
+
+	/**
+	 * Create a class visitor checking all accesses from the visited class, printing and recording failures.
+	 *
+	 * @param next visitor to pass the unchanged class on to, may be null
+	 */
+	static ClassVisitor createChecker(ClassVisitor next, AsmRemapper remapper) {
+		return new ClassVisitor(Opcodes.ASM9, next) {
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+				this.name = name;
+
+				if (superName != null) checkClass(name, superName, "super class", remapper);
+
+				if (interfaces != null) {
+					for (String iface : interfaces) {
+						checkClass(name, iface, "super interface", remapper);
+					}
+				}
+
+				super.visit(version, access, name, signature, superName, interfaces);
+			}
+
+			@Override
+			public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+				checkDesc(this.name, descriptor, "field descriptor", remapper);
+
+				return super.visitField(access, name, descriptor, signature, value);
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				checkDesc(this.name, descriptor, "method descriptor", remapper);
+
+				String owner = this.name;
+
+				return new MethodVisitor(Opcodes.ASM9, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+					@Override
+					public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+						checkClass(owner, type, "try-catch", remapper);
+
+						super.visitTryCatchBlock(start, end, handler, type);
+					}
+
+					@Override
+					public void visitTypeInsn(int opcode, String type) {
+						checkClass(owner, type, "type instruction", remapper);
+
+						super.visitTypeInsn(opcode, type);
+					}
+
+					@Override
+					public void visitLdcInsn(Object value) {
+						checkValue(owner, value, "ldc instruction", remapper);
+
+						super.visitLdcInsn(value);
+					}
+
+					@Override
+					public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+						checkDesc(owner, descriptor, "multianewarray instruction", remapper);
+
+						super.visitMultiANewArrayInsn(descriptor, numDimensions);
+					}
+
+					@Override
+					public void visitFieldInsn(int opcode, String fieldOwner, String name, String descriptor) {
+						checkMember(owner, fieldOwner, name, descriptor, TrMember.MemberType.FIELD, "field instruction", remapper);
+
+						super.visitFieldInsn(opcode, fieldOwner, name, descriptor);
+					}
+
+					@Override
+					public void visitMethodInsn(int opcode, String methodOwner, String name, String descriptor, boolean isInterface) {
+						checkMember(owner, methodOwner, name, descriptor, TrMember.MemberType.METHOD, "method instruction", remapper);
+
+						super.visitMethodInsn(opcode, methodOwner, name, descriptor, isInterface);
+					}
+				};
+			}
+
+			private String name;
+		};
+	}
+
 	private static boolean isSamePackage(String clsA, int pkgEnd, String clsB) {
 		return pkgEnd < 0 && clsB.indexOf('/') < 0 // both empty package
 				|| pkgEnd >= 0 // both non-empty (considering prev condition)
@@ -238,4 +448,9 @@ public final class PackageAccessChecker {
 
 		return false;
 	}
+
+	// constant pool tags, see JVMS 4.4
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_TYPE = 16;
 }
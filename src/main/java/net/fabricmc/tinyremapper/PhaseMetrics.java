@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.Locale;
+
+/**
+ * Timing and counters for one completed processing phase, as reported to a {@link TinyRemapper.MetricsListener}.
+ *
+ * <p>Counters that don't apply to a phase are 0. The resolution counters of phases bound to a MRJ state only cover
+ * the classes of that state, even if other states are processed concurrently.
+ */
+public final class PhaseMetrics {
+	public enum Phase {
+		/**
+		 * Reading and analyzing one batch of inputs or class path entries.
+		 */
+		READ,
+		LOAD_MAPPINGS,
+		CHECK_CLASS_MAPPINGS,
+		/**
+		 * Linking the class hierarchy of a MRJ state.
+		 */
+		MERGE,
+		/**
+		 * Propagating the member mappings through the hierarchy of a MRJ state.
+		 */
+		PROPAGATE,
+		HANDLE_CONFLICTS,
+		/**
+		 * Remapping all input classes of all MRJ states.
+		 */
+		APPLY,
+		/**
+		 * Checking the inputs of a MRJ state whose accesses may break for the classes and members to make public ahead
+		 * of applying, or rewriting them for all states afterwards if pre apply visitors are present.
+		 */
+		FIX_PACKAGE_ACCESS
+	}
+
+	/**
+	 * MRJ version reported for phases that aren't bound to a single MRJ state.
+	 */
+	public static final int ALL_STATES = Integer.MIN_VALUE;
+
+	PhaseMetrics(Phase phase, int mrjVersion, long wallTimeNanos,
+			int classCount, long memberCount,
+			long bytesRead, long bytesWritten,
+			long resolveHits, long resolveMisses, long resolveCacheEvictions, long resolveCacheSize,
+			long stringBytesSaved,
+			int queueDepth) {
+		this.phase = phase;
+		this.mrjVersion = mrjVersion;
+		this.wallTimeNanos = wallTimeNanos;
+		this.classCount = classCount;
+		this.memberCount = memberCount;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.resolveHits = resolveHits;
+		this.resolveMisses = resolveMisses;
+		this.resolveCacheEvictions = resolveCacheEvictions;
+		this.resolveCacheSize = resolveCacheSize;
+		this.stringBytesSaved = stringBytesSaved;
+		this.queueDepth = queueDepth;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * @return the MRJ version of the processed state, {@link ClassInstance#MRJ_DEFAULT} for the default state or
+	 * {@link #ALL_STATES}.
+	 */
+	public int getMrjVersion() {
+		return mrjVersion;
+	}
+
+	public long getWallTimeNanos() {
+		return wallTimeNanos;
+	}
+
+	/**
+	 * @return the number of classes the phase processed.
+	 */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * @return the number of members or member mappings the phase processed.
+	 */
+	public long getMemberCount() {
+		return memberCount;
+	}
+
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/**
+	 * @return the number of member resolutions answered from the per-class resolution cache during the phase.
+	 */
+	public long getResolveHits() {
+		return resolveHits;
+	}
+
+	/**
+	 * @return the number of member resolutions that had to search the hierarchy during the phase.
+	 */
+	public long getResolveMisses() {
+		return resolveMisses;
+	}
+
+	/**
+	 * @return the number of cached resolution results dropped during the phase to stay within the resolve cache limit.
+	 */
+	public long getResolveCacheEvictions() {
+		return resolveCacheEvictions;
+	}
+
+	/**
+	 * @return the number of resolution results held by the {@link TinyRemapper.ResolveCachePolicy#GLOBAL} resolve cache
+	 * once the phase finished, 0 for the other policies.
+	 */
+	public long getResolveCacheSize() {
+		return resolveCacheSize;
+	}
+
+	public double getResolveHitRate() {
+		long total = resolveHits + resolveMisses;
+
+		return total > 0 ? (double) resolveHits / total : 0;
+	}
+
+	/**
+	 * @return the estimated number of heap bytes saved during the phase by reusing pooled strings, see
+	 * {@link TinyRemapper.Builder#deduplicateStrings}.
+	 */
+	public long getStringBytesSaved() {
+		return stringBytesSaved;
+	}
+
+	/**
+	 * @return the number of tasks waiting in the thread pool's queue once the phase submitted all of its work.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(phase.name().toLowerCase(Locale.ENGLISH));
+
+		if (mrjVersion != ALL_STATES) {
+			sb.append(" [").append(mrjVersion == ClassInstance.MRJ_DEFAULT ? "default" : Integer.toString(mrjVersion)).append(']');
+		}
+
+		sb.append(String.format(Locale.ENGLISH, ": %.2f ms", wallTimeNanos / 1e6));
+
+		if (classCount != 0) sb.append(", ").append(classCount).append(" classes");
+		if (memberCount != 0) sb.append(", ").append(memberCount).append(" members");
+		if (bytesRead != 0) sb.append(", ").append(bytesRead).append(" bytes read");
+		if (bytesWritten != 0) sb.append(", ").append(bytesWritten).append(" bytes written");
+
+		if (resolveHits + resolveMisses != 0) {
+			sb.append(String.format(Locale.ENGLISH, ", %d resolves (%.1f%% cached)", resolveHits + resolveMisses, getResolveHitRate() * 100));
+		}
+
+		if (resolveCacheEvictions != 0) sb.append(", ").append(resolveCacheEvictions).append(" resolve cache evictions");
+		if (resolveCacheSize != 0) sb.append(", ").append(resolveCacheSize).append(" resolve cache entries");
+
+		if (stringBytesSaved != 0) sb.append(", ~").append(stringBytesSaved).append(" string bytes saved");
+
+		if (queueDepth != 0) sb.append(", queue depth ").append(queueDepth);
+
+		return sb.toString();
+	}
+
+	private final Phase phase;
+	private final int mrjVersion;
+	private final long wallTimeNanos;
+	private final int classCount;
+	private final long memberCount;
+	private final long bytesRead;
+	private final long bytesWritten;
+	private final long resolveHits;
+	private final long resolveMisses;
+	private final long resolveCacheEvictions;
+	private final long resolveCacheSize;
+	private final long stringBytesSaved;
+	private final int queueDepth;
+}
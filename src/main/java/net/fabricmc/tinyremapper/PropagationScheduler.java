@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import net.fabricmc.tinyremapper.TinyRemapper.MrjState;
+
+/**
+ * Distributes the member mappings to propagate across the propagation workers.
+ *
+ * <p>Mappings whose owners are in the same connected component of the merged class hierarchy are kept together, so
+ * different workers rarely propagate into the same classes and members. The components are then assigned greedily,
+ * largest first, to the least loaded worker. Components larger than a worker's fair share get split to bound the
+ * time spent waiting for the last worker.
+ */
+final class PropagationScheduler {
+	PropagationScheduler(MrjState state, int workers) {
+		this.state = state;
+		this.workers = workers;
+		this.components = new int[state.nextOrdinal];
+		this.componentIndices = new int[state.nextOrdinal];
+
+		for (int i = 0; i < components.length; i++) {
+			components[i] = i;
+		}
+
+		Arrays.fill(componentIndices, -1);
+
+		for (ClassInstance cls : state.classes.values()) {
+			for (ClassInstance parent : cls.parents) {
+				// every class would otherwise end up in the same component, propagating through Object only happens for its own few methods
+				if (parent.getName().equals(OBJECT_CLASS_NAME)) continue;
+
+				union(cls.ordinal, parent.ordinal);
+			}
+		}
+	}
+
+	/**
+	 * Queue the mappings of an owner class.
+	 *
+	 * @param weight estimated propagation cost, the number of mappings to propagate
+	 */
+	void add(MemberMappings.OwnerMappings owner, int weight) {
+		ClassInstance cls = state.getClass(owner.owner);
+		if (cls == null) return; // not available for this Side, nothing to propagate
+
+		int root = find(cls.ordinal);
+		int index = componentIndices[root];
+		Item component;
+
+		if (index < 0) {
+			componentIndices[root] = itemList.size();
+			itemList.add(component = new Item());
+		} else {
+			component = itemList.get(index);
+		}
+
+		component.add(owner, weight);
+		totalWeight += weight;
+	}
+
+	/**
+	 * @return the total weight of all added owners
+	 */
+	long getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * @return the owner mappings for each worker, at most one list per worker
+	 */
+	List<List<MemberMappings.OwnerMappings>> schedule() {
+		if (itemList.isEmpty()) return Collections.emptyList();
+
+		long maxWeight = Math.max((totalWeight + workers - 1) / workers, 1);
+		List<Item> items = new ArrayList<>(itemList.size());
+
+		for (Item component : itemList) {
+			if (component.weight <= maxWeight) {
+				items.add(component);
+			} else { // split into parts no larger than a worker's share
+				Item part = new Item();
+
+				for (int i = 0; i < component.owners.size(); i++) {
+					if (part.weight >= maxWeight) {
+						items.add(part);
+						part = new Item();
+					}
+
+					part.add(component.owners.get(i), component.weights.get(i));
+				}
+
+				items.add(part);
+			}
+		}
+
+		items.sort(Comparator.comparingLong((Item item) -> item.weight).reversed());
+
+		PriorityQueue<Item> bins = new PriorityQueue<>(workers, Comparator.comparingLong(item -> item.weight));
+		List<List<MemberMappings.OwnerMappings>> ret = new ArrayList<>(workers);
+
+		for (Item item : items) {
+			Item bin;
+
+			if (bins.size() < workers) {
+				bin = new Item();
+				ret.add(bin.owners);
+			} else {
+				bin = bins.poll();
+			}
+
+			bin.owners.addAll(item.owners);
+			bin.weight += item.weight;
+			bins.add(bin);
+		}
+
+		return ret;
+	}
+
+	private int find(int ordinal) {
+		while (components[ordinal] != ordinal) {
+			components[ordinal] = components[components[ordinal]]; // path halving
+			ordinal = components[ordinal];
+		}
+
+		return ordinal;
+	}
+
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+
+		if (a != b) components[Math.max(a, b)] = Math.min(a, b);
+	}
+
+	private static final class Item {
+		void add(MemberMappings.OwnerMappings owner, int weight) {
+			owners.add(owner);
+			weights.add(weight);
+			this.weight += weight;
+		}
+
+		final List<MemberMappings.OwnerMappings> owners = new ArrayList<>();
+		final List<Integer> weights = new ArrayList<>();
+		long weight;
+	}
+
+	private static final String OBJECT_CLASS_NAME = "java/lang/Object";
+
+	private final MrjState state;
+	private final int workers;
+	private final int[] components; // union-find parent by class ordinal
+	private final int[] componentIndices; // component root ordinal -> index in itemList
+	private final List<Item> itemList = new ArrayList<>();
+	private long totalWeight;
+}
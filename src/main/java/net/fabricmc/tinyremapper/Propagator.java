@@ -18,26 +18,30 @@
 
 package net.fabricmc.tinyremapper;
 
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Iterator;
 
 import org.objectweb.asm.Opcodes;
 
 import net.fabricmc.tinyremapper.TinyRemapper.Direction;
 import net.fabricmc.tinyremapper.TinyRemapper.LinkedMethodPropagation;
 import net.fabricmc.tinyremapper.api.TrMember;
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
 
 final class Propagator {
-	static void propagate(MemberInstance member, String memberId, String nameDst, Set<ClassInstance> visitedUp, Set<ClassInstance> visitedDown) {
+	static void propagate(MemberInstance member, String memberId, String nameDst) {
+		VisitedSet visitedUp = VISITED_UP.get();
+		VisitedSet visitedDown = VISITED_DOWN.get();
 		ClassInstance cls = member.cls;
 		boolean isVirtual = member.isVirtual();
 
+		visitedUp.clear();
+		visitedDown.clear();
 		visitedUp.add(cls);
 		visitedDown.add(cls);
-		cls.propagate(member.type, cls.getName(), memberId, nameDst,
+		propagate(cls, member.type, cls.getName(), memberId, nameDst,
 				(isVirtual ? Direction.ANY : Direction.DOWN), isVirtual, false,
 				true, visitedUp, visitedDown);
-		visitedUp.clear();
-		visitedDown.clear();
 
 		if (cls.tr.propagateRecordComponents != LinkedMethodPropagation.DISABLED
 				&& cls.isRecord()
@@ -47,12 +51,124 @@ final class Propagator {
 			MemberInstance getter = cls.getMember(TrMember.MemberType.METHOD, getterIdSrc);
 
 			if (getter != null && getter.isVirtual()) {
-				visitedUp.add(cls);
-				visitedDown.add(cls);
-				cls.propagate(TrMember.MemberType.METHOD, cls.getName(), getterIdSrc, nameDst, Direction.ANY, true, true, true, visitedUp, visitedDown);
 				visitedUp.clear();
 				visitedDown.clear();
+				visitedUp.add(cls);
+				visitedDown.add(cls);
+				propagate(cls, TrMember.MemberType.METHOD, cls.getName(), getterIdSrc, nameDst, Direction.ANY, true, true, true, visitedUp, visitedDown);
+			}
+		}
+	}
+
+	/**
+	 * Propagate starting from the supplied class with either the recursive or the iterative walk as configured.
+	 */
+	static void propagate(ClassInstance cls, MemberType type, String originatingCls, String idSrc, String nameDst,
+			Direction dir, boolean isVirtual, boolean fromBridge,
+			boolean first, VisitedSet visitedUp, VisitedSet visitedDown) {
+		if (cls.tr.iterativePropagation) {
+			propagateIterative(cls, type, originatingCls, idSrc, nameDst, dir, isVirtual, fromBridge, first, visitedUp, visitedDown);
+		} else {
+			cls.propagate(type, originatingCls, idSrc, nameDst, dir, isVirtual, fromBridge, first, visitedUp, visitedDown);
+		}
+	}
+
+	/**
+	 * Worklist equivalent of {@link ClassInstance#propagate}, visiting the classes in the same order.
+	 *
+	 * <p>Every frame represents a class whose neighbors are being visited, first the parents and then the children.
+	 * Bridge propagation started from within the walk continues on the same stack above the current frames.
+	 */
+	private static void propagateIterative(ClassInstance cls, MemberType type, String originatingCls, String idSrc, String nameDst,
+			Direction dir, boolean isVirtual, boolean fromBridge,
+			boolean first, VisitedSet visitedUp, VisitedSet visitedDown) {
+		Stack stack = STACK.get();
+		int base = stack.size;
+
+		enter(stack, cls, type, originatingCls, idSrc, nameDst, dir, isVirtual, fromBridge, first, visitedUp, visitedDown);
+
+		while (stack.size > base) {
+			Frame frame = stack.frames[stack.size - 1];
+
+			if (frame.neighbors == null || !frame.neighbors.hasNext()) {
+				if (!frame.visitingChildren && frame.down) {
+					frame.visitingChildren = true;
+					frame.neighbors = frame.cls.children.iterator();
+				} else {
+					frame.clear();
+					stack.size--;
+				}
+
+				continue;
+			}
+
+			ClassInstance node = frame.neighbors.next();
+
+			if (frame.visitingChildren) {
+				if (visitedDown.add(node)) {
+					enter(stack, node, type, originatingCls, idSrc, nameDst, Direction.DOWN, isVirtual, fromBridge, false, visitedUp, visitedDown);
+				}
+			} else if (visitedUp.add(node)) {
+				enter(stack, node, type, originatingCls, idSrc, nameDst, Direction.UP, isVirtual, fromBridge, false, visitedUp, visitedDown);
 			}
 		}
 	}
+
+	private static void enter(Stack stack, ClassInstance cls, MemberType type, String originatingCls, String idSrc, String nameDst,
+			Direction dir, boolean isVirtual, boolean fromBridge,
+			boolean first, VisitedSet visitedUp, VisitedSet visitedDown) {
+		MemberInstance member = cls.getMember(type, idSrc);
+
+		if (!cls.propagateLocal(member, type, originatingCls, nameDst, isVirtual, fromBridge, first, visitedUp, visitedDown)) {
+			return;
+		}
+
+		assert isVirtual || dir == Direction.DOWN;
+
+		boolean up = ClassInstance.propagatesUp(dir, isVirtual, member);
+		boolean down = ClassInstance.propagatesDown(dir, isVirtual, member);
+		if (!up && !down) return;
+
+		Frame frame = stack.push();
+		frame.cls = cls;
+		frame.down = down;
+		frame.visitingChildren = !up;
+		frame.neighbors = up ? cls.parents.iterator() : cls.children.iterator();
+	}
+
+	private static final class Stack {
+		Frame push() {
+			if (size == frames.length) {
+				frames = Arrays.copyOf(frames, size * 2);
+			}
+
+			Frame ret = frames[size];
+			if (ret == null) frames[size] = ret = new Frame();
+			size++;
+
+			return ret;
+		}
+
+		Frame[] frames = new Frame[INITIAL_STACK_SIZE];
+		int size;
+	}
+
+	private static final class Frame {
+		void clear() {
+			cls = null;
+			neighbors = null;
+		}
+
+		ClassInstance cls;
+		boolean down;
+		boolean visitingChildren;
+		Iterator<ClassInstance> neighbors;
+	}
+
+	private static final int INITIAL_STACK_SIZE = 64;
+
+	// per thread to be reusable without synchronization, propagation never re-enters itself on the same thread
+	private static final ThreadLocal<VisitedSet> VISITED_UP = ThreadLocal.withInitial(VisitedSet::new);
+	private static final ThreadLocal<VisitedSet> VISITED_DOWN = ThreadLocal.withInitial(VisitedSet::new);
+	private static final ThreadLocal<Stack> STACK = ThreadLocal.withInitial(Stack::new);
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.fabricmc.tinyremapper.TinyRemapper.ResolveCachePolicy;
+
+/**
+ * Cache for the member resolution results of a single class, including negative results.
+ *
+ * <p>Every class gets its own instance, how much it retains depends on the {@link ResolveCachePolicy}.
+ */
+abstract class ResolveCache {
+	static ResolveCache create(ClassInstance.RemapperSettings tr, ClassInstance cls) {
+		switch (tr.resolveCachePolicy) {
+		case UNBOUNDED: return new Unbounded();
+		case PER_CLASS: return new PerClass(tr.resolveCacheSize);
+		case GLOBAL: return new GlobalView(tr.globalResolveCache, cls);
+		default: throw new IllegalStateException();
+		}
+	}
+
+	abstract MemberInstance get(String id);
+
+	/**
+	 * @param evictions counter for the entries evicted to make room, may be null
+	 * @return the already cached member or null if the supplied member got cached.
+	 */
+	abstract MemberInstance putIfAbsent(String id, MemberInstance member, LongAdder evictions);
+
+	abstract void clear();
+
+	private static final class Unbounded extends ResolveCache {
+		@Override
+		MemberInstance get(String id) {
+			return map.get(id);
+		}
+
+		@Override
+		MemberInstance putIfAbsent(String id, MemberInstance member, LongAdder evictions) {
+			return map.putIfAbsent(id, member);
+		}
+
+		@Override
+		void clear() {
+			map.clear();
+		}
+
+		private final ConcurrentMap<String, MemberInstance> map = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Least recently used entries beyond the per class limit get evicted.
+	 */
+	private static final class PerClass extends ResolveCache {
+		PerClass(int maxSize) {
+			this.map = new LruMap<>(maxSize);
+		}
+
+		@Override
+		synchronized MemberInstance get(String id) {
+			return map.get(id);
+		}
+
+		@Override
+		synchronized MemberInstance putIfAbsent(String id, MemberInstance member, LongAdder evictions) {
+			return map.putIfAbsent(id, member, evictions);
+		}
+
+		@Override
+		synchronized void clear() {
+			map.clear();
+		}
+
+		private final LruMap<String, MemberInstance> map;
+	}
+
+	/**
+	 * Clearing only moves the class to a new generation, the entries of older generations can't be hit anymore and
+	 * age out of the global cache like any other unused entry.
+	 */
+	private static final class GlobalView extends ResolveCache {
+		GlobalView(Global global, ClassInstance cls) {
+			this.global = global;
+			this.cls = cls;
+		}
+
+		@Override
+		MemberInstance get(String id) {
+			return global.get(new Key(cls, generation, id));
+		}
+
+		@Override
+		MemberInstance putIfAbsent(String id, MemberInstance member, LongAdder evictions) {
+			return global.putIfAbsent(new Key(cls, generation, id), member, evictions);
+		}
+
+		@Override
+		void clear() {
+			generation++; // only invoked by the thread refreshing the class
+		}
+
+		private final Global global;
+		private final ClassInstance cls;
+		private volatile int generation;
+	}
+
+	/**
+	 * Cache shared by all classes of a remapper, evicting the least recently used entries beyond its total limit.
+	 *
+	 * <p>The entries are spread across independently locked segments, each holding up to an equal share of the limit.
+	 * Small limits use fewer segments to not exceed the limit in total.
+	 */
+	static final class Global {
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Global(int maxSize) {
+			int segmentCount = Math.min(Integer.highestOneBit(maxSize), MAX_SEGMENT_COUNT);
+			int segmentSize = maxSize / segmentCount;
+
+			this.segments = new LruMap[segmentCount];
+
+			for (int i = 0; i < segments.length; i++) {
+				segments[i] = new LruMap<>(segmentSize);
+			}
+		}
+
+		MemberInstance get(Key key) {
+			LruMap<Key, MemberInstance> segment = getSegment(key);
+
+			synchronized (segment) {
+				return segment.get(key);
+			}
+		}
+
+		MemberInstance putIfAbsent(Key key, MemberInstance member, LongAdder evictions) {
+			LruMap<Key, MemberInstance> segment = getSegment(key);
+
+			synchronized (segment) {
+				return segment.putIfAbsent(key, member, evictions);
+			}
+		}
+
+		/**
+		 * @return the number of currently cached entries, including cleared ones that didn't get evicted yet.
+		 */
+		int size() {
+			int ret = 0;
+
+			for (LruMap<Key, MemberInstance> segment : segments) {
+				synchronized (segment) {
+					ret += segment.size();
+				}
+			}
+
+			return ret;
+		}
+
+		private LruMap<Key, MemberInstance> getSegment(Key key) {
+			int hash = key.hashCode();
+
+			return segments[(hash ^ hash >>> 16) & (segments.length - 1)];
+		}
+
+		private static final int MAX_SEGMENT_COUNT = 64; // power of 2
+
+		private final LruMap<Key, MemberInstance>[] segments;
+	}
+
+	private static final class Key {
+		Key(ClassInstance cls, int generation, String id) {
+			this.cls = cls;
+			this.generation = generation;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) return false;
+
+			Key o = (Key) obj;
+
+			return cls == o.cls && generation == o.generation && id.equals(o.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(cls) * 31 + generation) * 31 + id.hashCode();
+		}
+
+		final ClassInstance cls;
+		final int generation;
+		final String id;
+	}
+
+	@SuppressWarnings("serial")
+	private static final class LruMap<K, V> extends LinkedHashMap<K, V> {
+		LruMap(int maxSize) {
+			super(16, 0.75f, true);
+
+			this.maxSize = maxSize;
+		}
+
+		V putIfAbsent(K key, V value, LongAdder evictions) {
+			int size = size();
+			V ret = putIfAbsent(key, value);
+			if (evictions != null && ret == null && size() == size) evictions.increment(); // added without growing
+
+			return ret;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maxSize;
+		}
+
+		private final int maxSize;
+	}
+}
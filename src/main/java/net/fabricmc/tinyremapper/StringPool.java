@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent pool for deduplicating the class names, member names and descriptors retained from analyzed classes and
+ * the owners, names and new names retained from loaded mappings. Member ids aren't pooled.
+ *
+ * <p>ASM and the mapping readers create new strings for every occurrence of a name, so the same strings would
+ * otherwise be kept once per referencing class or member. Unlike {@link String#intern} the pool is owned by a single
+ * {@link TinyRemapper} and gets dropped with it.
+ */
+final class StringPool {
+	/**
+	 * @param bytesSaved counter for the estimated heap bytes freed by replacing strings with pooled instances, may be
+	 * null
+	 */
+	StringPool(LongAdder bytesSaved) {
+		this.bytesSaved = bytesSaved;
+	}
+
+	/**
+	 * Get the pooled instance equal to the supplied string, adding it to the pool if absent.
+	 *
+	 * <p>The caller has to release the supplied string if it doesn't get returned, as it is counted as saved.
+	 */
+	String intern(String s) {
+		return intern(s, null);
+	}
+
+	/**
+	 * Get the pooled instance equal to the supplied string, adding it to the pool if absent.
+	 *
+	 * @param released set from {@link #createReleasedSet} for sources supplying the same instance repeatedly, counting
+	 * every replaced instance only once, or null if the supplied string is never passed again
+	 */
+	String intern(String s, Set<String> released) {
+		if (s == null) return null;
+
+		String ret = strings.get(s);
+
+		if (ret == null) {
+			ret = strings.putIfAbsent(s, s);
+			if (ret == null) return s;
+		}
+
+		if (bytesSaved != null && ret != s && (released == null || released.add(s))) {
+			bytesSaved.add(STRING_OVERHEAD + s.length());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Replace all elements of the supplied array with their pooled instances.
+	 */
+	String[] intern(String[] array, Set<String> released) {
+		if (array != null) {
+			for (int i = 0; i < array.length; i++) {
+				array[i] = intern(array[i], released);
+			}
+		}
+
+		return array;
+	}
+
+	/**
+	 * Create an identity set for tracking the strings already replaced by pooled instances, or null if the savings
+	 * aren't counted.
+	 */
+	Set<String> createReleasedSet() {
+		return bytesSaved != null ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+	}
+
+	/**
+	 * Approximate size of a string object and the header of its value array, the chars are counted as one byte each
+	 * as stored by compact strings.
+	 */
+	private static final int STRING_OVERHEAD = 40;
+
+	private final Map<String, String> strings = new ConcurrentHashMap<>();
+	private final LongAdder bytesSaved;
+}
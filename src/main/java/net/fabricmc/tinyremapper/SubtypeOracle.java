@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.fabricmc.tinyremapper.TinyRemapper.MrjState;
+
+/**
+ * Subtype queries for the classes of a single {@link MrjState}.
+ *
+ * <p>Every class' transitive parents are gathered once into a sorted array of their {@link ClassInstance#ordinal}s,
+ * so a query is a binary search instead of a hierarchy walk. Bridge detection additionally memoizes its results per
+ * descriptor pair. Both only reflect the hierarchy at the time the oracle got created, the state replaces it whenever
+ * it gets merged again.
+ */
+final class SubtypeOracle {
+	SubtypeOracle(MrjState state) {
+		this.state = state;
+		this.ancestors = new AtomicReferenceArray<>(state.nextOrdinal);
+	}
+
+	/**
+	 * Determine whether sub is the same as or a sub type of sup, equivalent to {@code sup.isAssignableFrom(sub)}.
+	 */
+	boolean isSubtype(ClassInstance sub, ClassInstance sup) {
+		return sub == sup || Arrays.binarySearch(getAncestors(sub), sup.ordinal) >= 0;
+	}
+
+	/**
+	 * Determine whether a method with the target descriptor can implement a bridge with the bridge descriptor.
+	 *
+	 * @see BridgeHandler#isBridgedDesc(String, String, MrjState)
+	 */
+	boolean isBridgedDesc(String bridgeDesc, String targetDesc) {
+		DescPair key = new DescPair(bridgeDesc, targetDesc);
+		Boolean ret = bridgedDescs.get(key);
+
+		if (ret == null) {
+			ret = BridgeHandler.isBridgedDesc(bridgeDesc, targetDesc, state);
+			bridgedDescs.putIfAbsent(key, ret);
+		}
+
+		return ret;
+	}
+
+	private int[] getAncestors(ClassInstance cls) {
+		int ordinal = cls.ordinal;
+		boolean cacheable = ordinal < ancestors.length(); // classes added after the last merge aren't linked yet
+		int[] ret;
+
+		if (cacheable && (ret = ancestors.get(ordinal)) != null) return ret;
+
+		ret = computeAncestors(cls);
+		if (cacheable) ancestors.set(ordinal, ret);
+
+		return ret;
+	}
+
+	private int[] computeAncestors(ClassInstance cls) {
+		Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<ClassInstance> queue = new ArrayDeque<>();
+		int[] ret = new int[8];
+		int size = 0;
+
+		visited.add(cls);
+
+		do {
+			for (ClassInstance parent : cls.parents) {
+				if (!visited.add(parent)) continue;
+
+				int ordinal = parent.ordinal;
+				int[] known = ordinal < ancestors.length() ? ancestors.get(ordinal) : null;
+
+				if (size + 1 + (known != null ? known.length : 0) > ret.length) {
+					ret = Arrays.copyOf(ret, Math.max(ret.length * 2, size + 1 + (known != null ? known.length : 0)));
+				}
+
+				ret[size++] = ordinal;
+
+				if (known != null) { // parent's own ancestors are already gathered, no need to walk them
+					System.arraycopy(known, 0, ret, size, known.length);
+					size += known.length;
+				} else {
+					queue.addLast(parent);
+				}
+			}
+		} while ((cls = queue.pollFirst()) != null);
+
+		// merged ancestor arrays may overlap with each other or the walked parents
+
+		Arrays.sort(ret, 0, size);
+		int count = 0;
+
+		for (int i = 0; i < size; i++) {
+			if (count == 0 || ret[i] != ret[count - 1]) ret[count++] = ret[i];
+		}
+
+		return Arrays.copyOf(ret, count);
+	}
+
+	private static final class DescPair {
+		DescPair(String bridgeDesc, String targetDesc) {
+			this.bridgeDesc = bridgeDesc;
+			this.targetDesc = targetDesc;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DescPair)) return false;
+
+			DescPair o = (DescPair) obj;
+
+			return bridgeDesc.equals(o.bridgeDesc) && targetDesc.equals(o.targetDesc);
+		}
+
+		@Override
+		public int hashCode() {
+			return bridgeDesc.hashCode() * 31 + targetDesc.hashCode();
+		}
+
+		final String bridgeDesc;
+		final String targetDesc;
+	}
+
+	private final MrjState state;
+	private final AtomicReferenceArray<int[]> ancestors;
+	private final Map<DescPair, Boolean> bridgedDescs = new ConcurrentHashMap<>();
+}
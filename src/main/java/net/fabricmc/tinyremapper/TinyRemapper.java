@@ -27,10 +27,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -40,16 +42,26 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
-import java.util.function.Supplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.zip.ZipError;
@@ -121,6 +133,30 @@ public class TinyRemapper {
 			return this;
 		}
 
+		/**
+		 * Whether to seed the output classes with the input constant pool, copying methods unaffected by remapping as is.
+		 *
+		 * <p>This skips decoding, remapping and encoding the code of such methods, but leaves the unused original names
+		 * in the constant pool. It has no effect with pre apply visitors, removed frames or package access checks that
+		 * don't fix the access.
+		 */
+		public OutputSettings copyUnchangedMethods(boolean value) {
+			copyUnchangedMethods = value;
+			return this;
+		}
+
+		/**
+		 * Whether to output classes unaffected by remapping with their original bytes instead of rewriting them.
+		 *
+		 * <p>A class qualifies if none of its names, references, descriptors and signatures change and local variable
+		 * processing wouldn't alter it. It has no effect with apply visitors, removed frames, rebuilt source file names
+		 * or package access checks that don't fix the access.
+		 */
+		public OutputSettings copyUnchangedClasses(boolean value) {
+			copyUnchangedClasses = value;
+			return this;
+		}
+
 		public OutputSettings extraRemapper(Remapper remapper) {
 			extraRemapper = remapper;
 			return this;
@@ -147,6 +183,8 @@ public class TinyRemapper {
 		protected boolean renameInvalidLocals = false;
 		protected Pattern invalidLvNamePattern;
 		protected boolean inferNameFromSameLvIndex;
+		protected boolean copyUnchangedMethods = false;
+		protected boolean copyUnchangedClasses = false;
 		protected final List<ApplyVisitorProvider> preApplyVisitors = new ArrayList<>();
 		protected final List<ApplyVisitorProvider> postApplyVisitors = new ArrayList<>();
 		protected Remapper extraRemapper;
@@ -257,6 +295,18 @@ public class TinyRemapper {
 			return this;
 		}
 
+		@Override
+		public Builder copyUnchangedMethods(boolean value) {
+			super.copyUnchangedMethods(value);
+			return this;
+		}
+
+		@Override
+		public Builder copyUnchangedClasses(boolean value) {
+			super.copyUnchangedClasses(value);
+			return this;
+		}
+
 		@Deprecated
 		public Builder extraAnalyzeVisitor(ClassVisitor visitor) {
 			return extraAnalyzeVisitor((mrjVersion, className, next) -> {
@@ -299,6 +349,89 @@ public class TinyRemapper {
 			return this;
 		}
 
+		/**
+		 * Receive wall time and counters for every processing phase, e.g. to find out where the remapping time goes.
+		 *
+		 * <p>The listener may be invoked from the thread pool and concurrently for different MRJ states.
+		 */
+		public Builder metricsListener(MetricsListener listener) {
+			metricsListener = listener;
+			return this;
+		}
+
+		/**
+		 * Cache the analysis of class path archives in the supplied directory, avoiding to read them again as long as
+		 * they don't change.
+		 *
+		 * <p>Only archives without zip64 features are cached. The cache isn't used while analyze visitors are present
+		 * since cached classes don't get visited.
+		 */
+		public Builder classPathCache(Path dir) {
+			classPathCacheDir = dir;
+			return this;
+		}
+
+		/**
+		 * Only link and propagate the classes added since the last refresh instead of redoing the whole hierarchy.
+		 *
+		 * <p>This is meant for long-lived remappers that keep reading further inputs after remapping. Only the
+		 * mappings for members occurring in the hierarchy around the added classes get propagated again, replacing an
+		 * existing class still triggers a full refresh.
+		 */
+		public Builder incrementalPropagation(boolean value) {
+			incrementalPropagation = value;
+			return this;
+		}
+
+		/**
+		 * Walk the class hierarchy with an explicit per thread stack instead of recursion when propagating mappings.
+		 *
+		 * <p>Both walks visit the classes in the same order and yield the same results, the iterative one avoids deep
+		 * call stacks for large hierarchies.
+		 */
+		public Builder iterativePropagation(boolean value) {
+			iterativePropagation = value;
+			return this;
+		}
+
+		/**
+		 * Compute the resolution results for all inherited members of every class after linking the hierarchy.
+		 *
+		 * <p>Member references then resolve with a single table lookup instead of searching through the hierarchy on
+		 * first use, at the cost of building and keeping a table of all inherited members per class.
+		 */
+		public Builder precomputeResolution(boolean value) {
+			precomputeResolution = value;
+			return this;
+		}
+
+		/**
+		 * Limit how many member resolution results are kept for reuse.
+		 *
+		 * @param maxSize the maximum number of cached results per class for {@link ResolveCachePolicy#PER_CLASS} or
+		 * in total for {@link ResolveCachePolicy#GLOBAL}, ignored for {@link ResolveCachePolicy#UNBOUNDED}
+		 */
+		public Builder resolveCache(ResolveCachePolicy policy, int maxSize) {
+			if (policy != ResolveCachePolicy.UNBOUNDED && maxSize <= 0) throw new IllegalArgumentException("invalid resolve cache size: "+maxSize);
+
+			resolveCachePolicy = Objects.requireNonNull(policy, "null policy");
+			resolveCacheSize = maxSize;
+			return this;
+		}
+
+		/**
+		 * Share a single instance of equal class names, member names and descriptors among all analyzed classes and of
+		 * equal owners, member names and new names among the loaded mappings. The member ids of the mappings aren't
+		 * shared.
+		 *
+		 * <p>This reduces the heap usage for large class paths. The estimated size of the strings replaced by shared
+		 * instances is reported to the {@link MetricsListener} by the read and mapping loading phases.
+		 */
+		public Builder deduplicateStrings(boolean value) {
+			deduplicateStrings = value;
+			return this;
+		}
+
 		public TinyRemapper build() {
 			TinyRemapper remapper = new TinyRemapper(mappingProviders, ignoreFieldDesc, threadCount,
 					keepInputData,
@@ -307,7 +440,11 @@ public class TinyRemapper {
 					removeFrames, ignoreConflicts, resolveMissing, checkPackageAccess || fixPackageAccess, fixPackageAccess,
 					rebuildSourceFilenames, skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex,
 					analyzeVisitors, stateProcessors, preApplyVisitors, postApplyVisitors,
-					extraRemapper);
+					extraRemapper, metricsListener,
+					classPathCacheDir != null ? new ClassPathCache(classPathCacheDir) : null, incrementalPropagation,
+					iterativePropagation, precomputeResolution,
+					resolveCachePolicy, resolveCacheSize, deduplicateStrings, copyUnchangedMethods,
+					copyUnchangedClasses);
 
 			return remapper;
 		}
@@ -323,6 +460,14 @@ public class TinyRemapper {
 		private boolean resolveMissing = false;
 		private final List<AnalyzeVisitorProvider> analyzeVisitors = new ArrayList<>();
 		private final List<StateProcessor> stateProcessors = new ArrayList<>();
+		private MetricsListener metricsListener;
+		private Path classPathCacheDir;
+		private boolean incrementalPropagation = false;
+		private boolean iterativePropagation = false;
+		private boolean precomputeResolution = false;
+		private ResolveCachePolicy resolveCachePolicy = ResolveCachePolicy.UNBOUNDED;
+		private int resolveCacheSize;
+		private boolean deduplicateStrings = false;
 	}
 
 	public interface Extension {
@@ -341,6 +486,10 @@ public class TinyRemapper {
 		ClassVisitor insertApplyVisitor(TrClass cls, ClassVisitor next);
 	}
 
+	public interface MetricsListener {
+		void onPhaseFinished(PhaseMetrics metrics);
+	}
+
 	private TinyRemapper(Collection<IMappingProvider> mappingProviders, boolean ignoreFieldDesc,
 			int threadCount,
 			boolean keepInputData,
@@ -356,12 +505,24 @@ public class TinyRemapper {
 			boolean renameInvalidLocals, Pattern invalidLvNamePattern, boolean inferNameFromSameLvIndex,
 			List<AnalyzeVisitorProvider> analyzeVisitors, List<StateProcessor> stateProcessors,
 			List<ApplyVisitorProvider> preApplyVisitors, List<ApplyVisitorProvider> postApplyVisitors,
-			Remapper extraRemapper) {
+			Remapper extraRemapper, MetricsListener metricsListener,
+			ClassPathCache classPathCache, boolean incrementalPropagation,
+			boolean iterativePropagation, boolean precomputeResolution,
+			ResolveCachePolicy resolveCachePolicy, int resolveCacheSize, boolean deduplicateStrings,
+			boolean copyUnchangedMethods, boolean copyUnchangedClasses) {
 		this.mappingProviders = mappingProviders;
 		this.ignoreFieldDesc = ignoreFieldDesc;
 		this.threadCount = threadCount > 0 ? threadCount : Math.max(Runtime.getRuntime().availableProcessors(), 2);
 		this.keepInputData = keepInputData;
 		this.threadPool = Executors.newFixedThreadPool(this.threadCount);
+		int mrjStateThreads = Math.min(this.threadCount, MAX_CONCURRENT_MRJ_STATES);
+		this.mrjStateExecutor = new ThreadPoolExecutor(mrjStateThreads, mrjStateThreads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+			Thread thread = new Thread(task, "tiny-remapper-mrj-state");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+		this.mrjStateExecutor.allowCoreThreadTimeOut(true);
 		this.forcePropagation = forcePropagation;
 		this.propagatePrivate = propagatePrivate;
 		this.propagateBridges = propagateBridges;
@@ -379,8 +540,23 @@ public class TinyRemapper {
 		this.analyzeVisitors = analyzeVisitors;
 		this.stateProcessors = stateProcessors;
 		this.preApplyVisitors = preApplyVisitors;
+		this.fixPackageAccessInline = fixPackageAccess && preApplyVisitors.isEmpty();
+		this.copyUnchangedMethods = copyUnchangedMethods && preApplyVisitors.isEmpty() && !removeFrames
+				&& (!checkPackageAccess || fixPackageAccessInline);
+		this.copyUnchangedClasses = copyUnchangedClasses && preApplyVisitors.isEmpty() && postApplyVisitors.isEmpty() && !check
+				&& !removeFrames && !rebuildSourceFilenames && (!checkPackageAccess || fixPackageAccessInline);
 		this.postApplyVisitors = postApplyVisitors;
 		this.extraRemapper = extraRemapper;
+		this.metricsListener = metricsListener;
+		this.resolveCachePolicy = resolveCachePolicy;
+		this.resolveCacheSize = resolveCacheSize;
+		this.globalResolveCache = resolveCachePolicy == ResolveCachePolicy.GLOBAL ? new ResolveCache.Global(resolveCacheSize) : null;
+		this.stringBytesSaved = metricsListener != null && deduplicateStrings ? new LongAdder() : null;
+		this.stringPool = deduplicateStrings ? new StringPool(stringBytesSaved) : null;
+		this.classPathCache = classPathCache;
+		this.incrementalPropagation = incrementalPropagation;
+		this.iterativePropagation = iterativePropagation;
+		this.precomputeResolution = precomputeResolution;
 	}
 
 	public static Builder newRemapper() {
@@ -389,6 +565,7 @@ public class TinyRemapper {
 
 	public void finish() {
 		threadPool.shutdown();
+		mrjStateExecutor.shutdown();
 
 		try {
 			threadPool.awaitTermination(20, TimeUnit.SECONDS);
@@ -458,14 +635,17 @@ public class TinyRemapper {
 	}
 
 	private CompletableFuture<List<ClassInstance>> read(Path[] inputs, boolean isInput, InputTag tag) {
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.READ, PhaseMetrics.ALL_STATES);
 		InputTag[] tags = singleInputTags.get().get(tag);
 		List<CompletableFuture<List<ClassInstance>>> futures = new ArrayList<>();
 		List<FileSystem> fsToClose = Collections.synchronizedList(new ArrayList<>());
 
 		for (Path input : inputs) {
-			futures.addAll(read(input, isInput, tags, true, fsToClose));
+			futures.addAll(read(input, isInput, tags, true, fsToClose, recorder));
 		}
 
+		if (recorder != null) recorder.queueDepth = getQueueDepth();
+
 		CompletableFuture<List<ClassInstance>> ret;
 
 		if (futures.isEmpty()) {
@@ -498,6 +678,16 @@ public class TinyRemapper {
 				for (ClassInstance node : res) {
 					addClass(node, readClasses, true);
 				}
+
+				if (recorder != null) {
+					recorder.classes = res.size();
+
+					for (ClassInstance node : res) {
+						recorder.members += node.getMembers().size();
+					}
+
+					recorder.finish();
+				}
 			}
 
 			assert dirty;
@@ -539,17 +729,39 @@ public class TinyRemapper {
 		}
 	}
 
+	private void addClass(ClassInstance cls, MrjState state) {
+		cls.ordinal = state.nextOrdinal++;
+
+		if (!incrementalPropagation || !state.propagated) {
+			addClass(cls, state.classes, false);
+			return;
+		}
+
+		// track what changed for the next incremental refresh
+		ClassInstance prev = state.classes.get(cls.getName());
+		addClass(cls, state.classes, false);
+		ClassInstance added = state.classes.get(cls.getName());
+
+		if (added != prev) {
+			if (prev == null) {
+				state.addedClasses.add(added);
+			} else { // the replaced class may still be linked to others
+				state.fullRefresh = true;
+			}
+		}
+	}
+
 	private List<CompletableFuture<List<ClassInstance>>> read(final Path file, boolean isInput, InputTag[] tags,
-			boolean saveData, final List<FileSystem> fsToClose) {
+			boolean saveData, final List<FileSystem> fsToClose, PhaseRecorder recorder) {
 		try {
-			return read(file, isInput, tags, file, saveData, fsToClose);
+			return read(file, isInput, tags, file, saveData, fsToClose, recorder);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
 	private List<CompletableFuture<List<ClassInstance>>> read(final Path file, boolean isInput, InputTag[] tags, final Path srcPath,
-			final boolean saveData, final List<FileSystem> fsToClose) throws IOException {
+			final boolean saveData, final List<FileSystem> fsToClose, PhaseRecorder recorder) throws IOException {
 		List<CompletableFuture<List<ClassInstance>>> ret = new ArrayList<>();
 
 		Files.walkFileTree(file, new SimpleFileVisitor<Path>() {
@@ -560,18 +772,31 @@ public class TinyRemapper {
 				if (name.endsWith(".jar")
 						|| name.endsWith(".zip")
 						|| name.endsWith(".class")) {
-					ret.add(CompletableFuture.supplyAsync(new Supplier<List<ClassInstance>>() {
-						@Override
-						public List<ClassInstance> get() {
+					if (recorder != null) recorder.bytesRead += attrs.size();
+
+					if (name.endsWith(".class")) {
+						ret.add(CompletableFuture.supplyAsync(() -> readFile(file, isInput, tags, srcPath, fsToClose), threadPool));
+					} else {
+						ret.add(CompletableFuture.supplyAsync(() -> {
+							ChannelZipFile zip = openZipArchive(file);
+
+							if (zip == null) { // unsupported by ChannelZipFile, use zipfs
+								return CompletableFuture.completedFuture(readFile(file, isInput, tags, srcPath, fsToClose));
+							}
+
+							CompletableFuture<List<ClassInstance>> res;
+
 							try {
-								return readFile(file, isInput, tags, srcPath, fsToClose);
-							} catch (URISyntaxException e) {
-								throw new RuntimeException(e);
-							} catch (IOException | ZipError e) {
-								throw new RuntimeException("Error reading file "+file, e);
+								res = readZipArchiveCached(zip, isInput, tags, srcPath);
+							} catch (Throwable t) {
+								closeZipArchive(zip);
+								throw t;
 							}
-						}
-					}, threadPool));
+
+							// release the file once its classes are read, callers may replace it right after reading
+							return res.whenComplete((classes, exc) -> closeZipArchive(zip));
+						}, threadPool).thenCompose(Function.identity()));
+					}
 				}
 
 				return FileVisitResult.CONTINUE;
@@ -582,6 +807,17 @@ public class TinyRemapper {
 	}
 
 	private List<ClassInstance> readFile(Path file, boolean isInput, InputTag[] tags, final Path srcPath,
+			List<FileSystem> fsToClose) {
+		try {
+			return readFile0(file, isInput, tags, srcPath, fsToClose);
+		} catch (URISyntaxException e) {
+			throw new RuntimeException(e);
+		} catch (IOException | ZipError e) {
+			throw new RuntimeException("Error reading file "+file, e);
+		}
+	}
+
+	private List<ClassInstance> readFile0(Path file, boolean isInput, InputTag[] tags, final Path srcPath,
 			List<FileSystem> fsToClose) throws IOException, URISyntaxException {
 		List<ClassInstance> ret = new ArrayList<ClassInstance>();
 
@@ -609,6 +845,100 @@ public class TinyRemapper {
 		return ret;
 	}
 
+	private static ChannelZipFile openZipArchive(Path file) {
+		try {
+			return ChannelZipFile.open(file);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading file "+file, e);
+		}
+	}
+
+	private static void closeZipArchive(ChannelZipFile zip) {
+		try {
+			zip.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error closing file "+zip.getPath(), e);
+		}
+	}
+
+	private CompletableFuture<List<ClassInstance>> readZipArchiveCached(ChannelZipFile zip, boolean isInput, InputTag[] tags, Path srcPath) {
+		if (isInput || classPathCache == null || !analyzeVisitors.isEmpty()) {
+			return readZipArchive(zip, isInput, tags, srcPath);
+		}
+
+		List<ClassInstance> cached = classPathCache.load(this, zip, tags, srcPath);
+		if (cached != null) return CompletableFuture.completedFuture(cached);
+
+		return readZipArchive(zip, isInput, tags, srcPath).thenApply(res -> {
+			classPathCache.store(zip, res);
+			return res;
+		});
+	}
+
+	/**
+	 * Read the classes from a zip archive without going through the zip file system.
+	 *
+	 * <p>The class entries are split into chunks that get analyzed in parallel, so a single large archive can use the
+	 * whole thread pool. The result retains the central directory order.
+	 */
+	private CompletableFuture<List<ClassInstance>> readZipArchive(ChannelZipFile zip, boolean isInput, InputTag[] tags, Path srcPath) {
+		List<ChannelZipFile.Entry> entries = new ArrayList<>();
+
+		for (ChannelZipFile.Entry entry : zip.getEntries()) {
+			if (!entry.isDirectory() && entry.getName().endsWith(".class")) entries.add(entry);
+		}
+
+		// aim for a few chunks per thread to balance uneven class sizes, but avoid tiny tasks
+		int chunkSize = Math.max(MIN_ARCHIVE_CHUNK_SIZE, (entries.size() + threadCount * 4 - 1) / (threadCount * 4));
+
+		if (entries.size() <= chunkSize) {
+			return CompletableFuture.completedFuture(readZipEntries(zip, entries, isInput, tags, srcPath));
+		}
+
+		List<CompletableFuture<List<ClassInstance>>> futures = new ArrayList<>();
+
+		for (int start = 0; start < entries.size(); start += chunkSize) {
+			List<ChannelZipFile.Entry> chunk = entries.subList(start, Math.min(start + chunkSize, entries.size()));
+			futures.add(CompletableFuture.supplyAsync(() -> readZipEntries(zip, chunk, isInput, tags, srcPath), threadPool));
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+				.thenApply(ignore -> {
+					List<ClassInstance> ret = new ArrayList<>(entries.size());
+
+					for (CompletableFuture<List<ClassInstance>> future : futures) {
+						ret.addAll(future.join());
+					}
+
+					return ret;
+				});
+	}
+
+	private List<ClassInstance> readZipEntries(ChannelZipFile zip, List<ChannelZipFile.Entry> entries, boolean isInput, InputTag[] tags, Path srcPath) {
+		List<ClassInstance> ret = new ArrayList<>(entries.size());
+		byte[] buffer = isInput ? null : new byte[8192]; // class path data isn't retained, decode it into a shared buffer
+
+		for (ChannelZipFile.Entry entry : entries) {
+			String name = entry.getName();
+			byte[] data;
+
+			try {
+				if (isInput) {
+					data = zip.read(entry);
+				} else {
+					data = buffer = zip.read(entry, buffer);
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Error reading file "+zip.getPath(), e);
+			}
+
+			ClassInstance res = analyze(isInput, tags, srcPath, data, entry.getSize(), clsName -> analyzeMrjVersion(name, clsName));
+			if (res != null) ret.add(res);
+		}
+
+		return ret;
+	}
+
 	/**
 	 * Determine the MRJ version of the supplied class file and name.
 	 *
@@ -641,18 +971,80 @@ public class TinyRemapper {
 		return ClassInstance.MRJ_DEFAULT;
 	}
 
+	/**
+	 * Determine the MRJ version of the supplied zip entry name and class name.
+	 *
+	 * <p>This is the equivalent of {@link #analyzeMrjVersion(Path, String)} for '/' separated archive entry names.
+	 */
+	static int analyzeMrjVersion(String entryName, String name) {
+		int pkgCount = 0;
+		int pos = 0;
+
+		while ((pos = name.indexOf('/', pos) + 1) > 0) {
+			pkgCount++;
+		}
+
+		// find the start of the root package dir, pkgCount + 1 separators from the end
+		int rootStart = entryName.length();
+
+		for (int i = 0; i <= pkgCount; i++) {
+			rootStart = entryName.lastIndexOf('/', rootStart - 1);
+			if (rootStart <= 0) return ClassInstance.MRJ_DEFAULT;
+		}
+
+		int versionEnd = rootStart++;
+		int versionStart = entryName.lastIndexOf('/', versionEnd - 1) + 1;
+		String prefix = "META-INF/versions/";
+
+		if (versionStart >= prefix.length()
+				&& entryName.startsWith(prefix, versionStart - prefix.length()) // root pkg is in META-INF/versions/x
+				&& (versionStart == prefix.length() || entryName.charAt(versionStart - prefix.length() - 1) == '/')
+				&& entryName.regionMatches(rootStart, name, 0, name.length())) { // verify class name == path from root pkg dir, ignores suffix like .class
+			try {
+				return Integer.parseInt(entryName.substring(versionStart, versionEnd));
+			} catch (NumberFormatException e) {
+				// ignore
+			}
+		}
+
+		return ClassInstance.MRJ_DEFAULT;
+	}
+
 	private ClassInstance analyze(boolean isInput, InputTag[] tags, Path srcPath, Path file) throws IOException {
-		byte[] data = Files.readAllBytes(file);
-		ClassReader reader = new ClassReader(data);
+		return analyze(isInput, tags, srcPath, file, Files.readAllBytes(file));
+	}
+
+	ClassInstance analyze(boolean isInput, InputTag[] tags, Path srcPath, Path file, byte[] data) {
+		return analyze(isInput, tags, srcPath, data, data.length, name -> analyzeMrjVersion(file, name));
+	}
+
+	/**
+	 * Analyze the class stored in the first {@code len} bytes of {@code data}.
+	 *
+	 * <p>{@code data} is retained for input classes and thus has to be exactly sized for those.
+	 */
+	private ClassInstance analyze(boolean isInput, InputTag[] tags, Path srcPath, byte[] data, int len, ToIntFunction<String> mrjVersionFn) {
+		assert !isInput || data.length == len;
+
+		ClassReader reader = new ClassReader(data, 0, len);
 
 		if ((reader.getAccess() & Opcodes.ACC_MODULE) != 0) return null; // special attribute for module-info.class, can't be a regular class
 
 		final ClassInstance ret = new ClassInstance(this, isInput, tags, srcPath, isInput ? data : null);
+		// the reader returns the same instance for every use of a constant pool entry
+		final Set<String> released = stringPool != null ? stringPool.createReleasedSet() : null;
 
 		reader.accept(new ClassVisitor(Opcodes.ASM9) {
 			@Override
 			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-				int mrjVersion = analyzeMrjVersion(file, name);
+				int mrjVersion = mrjVersionFn.applyAsInt(name);
+
+				if (stringPool != null) {
+					name = stringPool.intern(name, released);
+					superName = stringPool.intern(superName, released);
+					interfaces = stringPool.intern(interfaces, released);
+				}
+
 				ret.init(mrjVersion, name, signature, superName, access, interfaces);
 
 				for (int i = analyzeVisitors.size() - 1; i >= 0; i--) {
@@ -664,6 +1056,11 @@ public class TinyRemapper {
 
 			@Override
 			public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+				if (stringPool != null) {
+					name = stringPool.intern(name, released);
+					desc = stringPool.intern(desc, released);
+				}
+
 				MemberInstance prev = ret.addMember(new MemberInstance(TrMember.MemberType.METHOD, ret, name, desc, access, ret.getMembers().size()));
 				if (prev != null) throw new RuntimeException(String.format("duplicate method %s/%s%s in inputs", ret.getName(), name, desc));
 
@@ -672,6 +1069,11 @@ public class TinyRemapper {
 
 			@Override
 			public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+				if (stringPool != null) {
+					name = stringPool.intern(name, released);
+					desc = stringPool.intern(desc, released);
+				}
+
 				MemberInstance prev = ret.addMember(new MemberInstance(TrMember.MemberType.FIELD, ret, name, desc, access, ret.getMembers().size()));
 				if (prev != null) throw new RuntimeException(String.format("duplicate field %s/%s;;%s in inputs", ret.getName(), name, desc));
 
@@ -679,13 +1081,27 @@ public class TinyRemapper {
 			}
 		}, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES | ClassReader.SKIP_CODE);
 
+		if (isInput && fixPackageAccessInline) {
+			String[] referencedClasses = PackageAccessChecker.getReferencedClasses(reader);
+			ret.referencedClasses = stringPool != null ? stringPool.intern(referencedClasses, released) : referencedClasses;
+		}
+
 		return ret;
 	}
 
-	private void loadMappings() {
+	void loadMappings() {
+		MemberMappings memberMappings = new MemberMappings(ignoreFieldDesc, stringPool);
+		Map<String, String> fieldMap = memberMappings.getAcceptor(TrMember.MemberType.FIELD);
+		Map<String, String> methodMap = memberMappings.getAcceptor(TrMember.MemberType.METHOD);
+
 		for (IMappingProvider provider : mappingProviders) {
-			provider.load(classMap, fieldMap, methodMap, localMap);
+			provider.load(classMap, fieldMap, methodMap, localMap, threadPool);
 		}
+
+		if (stringPool != null) classMap.replaceAll((name, newName) -> stringPool.intern(newName));
+
+		memberMappings.finish();
+		this.memberMappings = memberMappings;
 	}
 
 	private void checkClassMappings() {
@@ -716,105 +1132,283 @@ public class TinyRemapper {
 	}
 
 	private void merge(MrjState state) {
-		for (ClassInstance node : state.classes.values()) {
-			assert node.getSuperName() != null;
+		if (incrementalPropagation) state.unresolvedParents.clear();
 
-			ClassInstance parent = state.getClass(node.getSuperName());
+		for (ClassInstance node : state.classes.values()) {
+			link(state, node);
+		}
+	}
 
-			if (parent != null) {
-				node.parents.add(parent);
-				parent.children.add(node);
-			}
+	/**
+	 * Link the classes added since the last refresh of an already propagated state.
+	 *
+	 * @return the previously present classes that gained an added class as a parent
+	 */
+	private List<ClassInstance> mergeAdded(MrjState state) {
+		List<ClassInstance> adopted = new ArrayList<>();
 
-			for (String iface : node.getInterfaceNames0()) {
-				parent = state.getClass(iface);
+		for (ClassInstance node : state.addedClasses) {
+			List<ClassInstance> children = state.unresolvedParents.remove(node.getName());
+			if (children == null) continue;
 
-				if (parent != null) {
-					node.parents.add(parent);
-					parent.children.add(node);
-				}
+			for (ClassInstance child : children) {
+				child.parents.add(node);
+				node.children.add(child);
+				adopted.add(child);
 			}
 		}
+
+		for (ClassInstance node : state.addedClasses) {
+			link(state, node);
+		}
+
+		return adopted;
 	}
 
-	private void propagate(MrjState state) {
-		List<Future<?>> futures = new ArrayList<>();
-		List<Map.Entry<String, String>> tasks = new ArrayList<>();
-		int maxTasks = methodMap.size() / threadCount / 4;
+	private void link(MrjState state, ClassInstance node) {
+		assert node.getSuperName() != null;
 
-		for (Map.Entry<String, String> entry : methodMap.entrySet()) {
-			tasks.add(entry);
+		link(state, node, node.getSuperName());
 
-			if (tasks.size() >= maxTasks) {
-				futures.add(threadPool.submit(new Propagation(state, TrMember.MemberType.METHOD, tasks)));
-				tasks.clear();
-			}
+		for (String iface : node.getInterfaceNames0()) {
+			link(state, node, iface);
 		}
+	}
 
-		futures.add(threadPool.submit(new Propagation(state, TrMember.MemberType.METHOD, tasks)));
-		tasks.clear();
+	private void link(MrjState state, ClassInstance node, String parentName) {
+		ClassInstance parent = state.getClass(parentName);
 
-		for (Map.Entry<String, String> entry : fieldMap.entrySet()) {
-			tasks.add(entry);
+		if (parent != null) {
+			node.parents.add(parent);
+			parent.children.add(node);
+		} else if (incrementalPropagation) { // remember for when the parent gets added later
+			state.unresolvedParents.computeIfAbsent(parentName, ignore -> new ArrayList<>()).add(node);
+		}
+	}
 
-			if (tasks.size() >= maxTasks) {
-				futures.add(threadPool.submit(new Propagation(state, TrMember.MemberType.FIELD, tasks)));
-				tasks.clear();
-			}
+	/**
+	 * Build the resolution tables for the supplied classes, super classes before their sub classes.
+	 *
+	 * <p>A table only depends on the super class' table, so the classes get processed in parallel per super class
+	 * depth. Super classes outside of the supplied classes are expected to have an up to date table already.
+	 */
+	private void buildResolutionTables(Collection<ClassInstance> classes) {
+		Map<ClassInstance, Integer> depths = new IdentityHashMap<>(classes.size());
+		List<List<ClassInstance>> levels = new ArrayList<>();
+
+		for (ClassInstance cls : classes) {
+			depths.put(cls, -1);
 		}
 
-		futures.add(threadPool.submit(new Propagation(state, TrMember.MemberType.FIELD, tasks)));
-		tasks.clear();
+		for (ClassInstance cls : classes) {
+			int depth = getSuperDepth(cls, depths);
+			while (levels.size() <= depth) levels.add(new ArrayList<>());
+			levels.get(depth).add(cls);
+		}
 
-		waitForAll(futures);
+		for (List<ClassInstance> level : levels) {
+			List<Future<?>> futures = new ArrayList<>();
+			int chunkSize = Math.max(level.size() / threadCount, 1);
 
-		handleConflicts(state);
+			for (int start = 0; start < level.size(); start += chunkSize) {
+				List<ClassInstance> chunk = level.subList(start, Math.min(start + chunkSize, level.size()));
+
+				futures.add(threadPool.submit(() -> {
+					for (ClassInstance cls : chunk) {
+						cls.buildResolutionTable();
+					}
+				}));
+			}
+
+			waitForAll(futures);
+		}
 	}
 
-	private void handleConflicts(MrjState state) {
-		Set<String> testSet = new HashSet<>();
-		boolean targetNameCheckFailed = false;
+	private static int getSuperDepth(ClassInstance cls, Map<ClassInstance, Integer> depths) {
+		Deque<ClassInstance> chain = new ArrayDeque<>();
+		int depth = -1;
 
-		for (ClassInstance cls : state.classes.values()) {
-			for (MemberInstance member : cls.getMembers()) {
-				String name = member.getNewMappedName();
-				if (name == null) name = member.name;
+		for (ClassInstance c = cls; c != null; c = c.getSuperClass()) {
+			Integer known = depths.get(c);
+			if (known == null) break; // not being built, its table is already present
 
-				testSet.add(MemberInstance.getId(member.type, name, member.desc, ignoreFieldDesc));
+			if (known >= 0) {
+				depth = known;
+				break;
 			}
 
-			if (testSet.size() != cls.getMembers().size()) {
-				if (!targetNameCheckFailed) {
-					targetNameCheckFailed = true;
-					System.out.println("Mapping target name conflicts detected:");
-				}
+			chain.push(c);
+		}
 
-				Map<String, List<MemberInstance>> duplicates = new HashMap<>();
+		ClassInstance c;
 
-				for (MemberInstance member : cls.getMembers()) {
-					String name = member.getNewMappedName();
-					if (name == null) name = member.name;
+		while ((c = chain.poll()) != null) {
+			depths.put(c, ++depth);
+		}
 
-					duplicates.computeIfAbsent(MemberInstance.getId(member.type, name, member.desc, ignoreFieldDesc), ignore -> new ArrayList<>()).add(member);
-				}
+		return depths.get(cls);
+	}
 
-				for (Map.Entry<String, List<MemberInstance>> e : duplicates.entrySet()) {
-					String nameDesc = e.getKey();
-					List<MemberInstance> members = e.getValue();
-					if (members.size() < 2) continue;
+	/**
+	 * Propagate the mappings again whose propagation may reach the classes added by {@link #mergeAdded}.
+	 *
+	 * <p>Propagation only crosses the new links through the added classes, so it has to either start from or pass
+	 * through an added class, one of its ancestors or one of the adopted classes' descendants - continuing past those
+	 * only happens for members with the mapped id. Re-propagating every mapping for a member id present in any of those
+	 * classes thus covers all changes, already propagated names are simply applied again.
+	 */
+	private void propagateAdded(MrjState state, List<ClassInstance> adopted) {
+		Set<String> methodIds = new HashSet<>();
+		Set<String> fieldIds = new HashSet<>();
+		Set<ClassInstance> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<ClassInstance> queue = new ArrayDeque<>(state.addedClasses);
+		ClassInstance cls;
 
-					MemberInstance anyMember = members.get(0);
-					System.out.printf("  %ss %s/[", anyMember.type, cls.getName());
+		visited.addAll(queue);
 
-					for (int i = 0; i < members.size(); i++) {
-						if (i != 0) System.out.print(", ");
+		while ((cls = queue.pollFirst()) != null) {
+			addMemberIds(cls, methodIds, fieldIds);
 
-						MemberInstance member = members.get(i);
+			for (ClassInstance parent : cls.parents) {
+				if (visited.add(parent)) queue.addLast(parent);
+			}
+		}
 
-						if (member.newNameOriginatingCls != null && !member.newNameOriginatingCls.equals(cls.getName())) {
-							System.out.print(member.newNameOriginatingCls);
-							System.out.print('/');
-						}
+		visited.clear();
+		queue.addAll(adopted);
+		visited.addAll(queue);
+
+		while ((cls = queue.pollFirst()) != null) {
+			addMemberIds(cls, methodIds, fieldIds);
+
+			for (ClassInstance child : cls.children) {
+				if (visited.add(child)) queue.addLast(child);
+			}
+		}
+
+		propagate(state, mapping -> (mapping.type == TrMember.MemberType.METHOD ? methodIds : fieldIds).contains(mapping.id));
+	}
+
+	private void addMemberIds(ClassInstance cls, Set<String> methodIds, Set<String> fieldIds) {
+		for (MemberInstance member : cls.getMrjOrigin().getMembers()) { // same ids, avoids creating the members of MRJ copies
+			if (member.type == TrMember.MemberType.FIELD) {
+				fieldIds.add(member.getId());
+			} else {
+				methodIds.add(member.getId());
+
+				if (propagateRecordComponents != LinkedMethodPropagation.DISABLED && member.desc.startsWith("()")) {
+					// record component getter, its field's mapping propagates into it
+					fieldIds.add(MemberInstance.getFieldId(member.name, member.desc.substring(2), ignoreFieldDesc));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param filter selects the mappings to propagate, null for all
+	 */
+	private void propagate(MrjState state, Predicate<MemberMappings.Mapping> filter) {
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.PROPAGATE, state.version);
+		PropagationScheduler scheduler = new PropagationScheduler(state, threadCount);
+
+		for (MemberMappings.OwnerMappings owner : memberMappings.getOwners()) {
+			int renames;
+
+			if (filter == null) {
+				renames = owner.getRenames().size();
+			} else {
+				renames = 0;
+
+				for (MemberMappings.Mapping mapping : owner.getRenames()) {
+					if (filter.test(mapping)) renames++;
+				}
+			}
+
+			if (renames > 0) scheduler.add(owner, renames);
+		}
+
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (List<MemberMappings.OwnerMappings> tasks : scheduler.schedule()) {
+			futures.add(threadPool.submit(new Propagation(state, tasks, filter)));
+		}
+
+		if (recorder != null) recorder.queueDepth = getQueueDepth();
+
+		waitForAll(futures);
+
+		if (recorder != null) {
+			recorder.classes = state.classes.size();
+			recorder.members = scheduler.getTotalWeight();
+			recorder.finish();
+		}
+
+		recorder = startPhase(PhaseMetrics.Phase.HANDLE_CONFLICTS, state.version);
+		handleConflicts(state);
+
+		if (recorder != null) {
+			recorder.classes = state.classes.size();
+
+			for (MemberInstance member : conflicts.keySet()) {
+				if (member.getContext() == state) recorder.members++;
+			}
+
+			recorder.finish();
+		}
+	}
+
+	private void handleConflicts(MrjState state) {
+		synchronized (conflicts) { // the states may be processed concurrently, keep their output apart
+			handleConflicts0(state);
+		}
+	}
+
+	private void handleConflicts0(MrjState state) {
+		Set<String> testSet = new HashSet<>();
+		boolean targetNameCheckFailed = false;
+
+		for (ClassInstance cls : state.classes.values()) {
+			if (!cls.hasMappedMembers()) continue; // the original member ids are unique
+
+			for (MemberInstance member : cls.getMembers()) {
+				String name = member.getNewMappedName();
+				if (name == null) name = member.name;
+
+				testSet.add(MemberInstance.getId(member.type, name, member.desc, ignoreFieldDesc));
+			}
+
+			if (testSet.size() != cls.getMembers().size()) {
+				if (!targetNameCheckFailed) {
+					targetNameCheckFailed = true;
+					System.out.println("Mapping target name conflicts detected:");
+				}
+
+				Map<String, List<MemberInstance>> duplicates = new HashMap<>();
+
+				for (MemberInstance member : cls.getMembers()) {
+					String name = member.getNewMappedName();
+					if (name == null) name = member.name;
+
+					duplicates.computeIfAbsent(MemberInstance.getId(member.type, name, member.desc, ignoreFieldDesc), ignore -> new ArrayList<>()).add(member);
+				}
+
+				for (Map.Entry<String, List<MemberInstance>> e : duplicates.entrySet()) {
+					String nameDesc = e.getKey();
+					List<MemberInstance> members = e.getValue();
+					if (members.size() < 2) continue;
+
+					MemberInstance anyMember = members.get(0);
+					System.out.printf("  %ss %s/[", anyMember.type, cls.getName());
+
+					for (int i = 0; i < members.size(); i++) {
+						if (i != 0) System.out.print(", ");
+
+						MemberInstance member = members.get(i);
+
+						if (member.newNameOriginatingCls != null && !member.newNameOriginatingCls.equals(cls.getName())) {
+							System.out.print(member.newNameOriginatingCls);
+							System.out.print('/');
+						}
 
 						System.out.print(member.name);
 					}
@@ -826,46 +1420,49 @@ public class TinyRemapper {
 			testSet.clear();
 		}
 
+		boolean sourceConflicts = false;
 		boolean unfixableConflicts = false;
 
-		if (!conflicts.isEmpty()) {
-			System.out.println("Mapping source name conflicts detected:");
+		for (Map.Entry<MemberInstance, Set<String>> entry : conflicts.entrySet()) {
+			MemberInstance member = entry.getKey();
+			if (member.getContext() != state) continue; // reported by its own state
 
-			for (Map.Entry<MemberInstance, Set<String>> entry : conflicts.entrySet()) {
-				MemberInstance member = entry.getKey();
-				String newName = member.getNewMappedName();
-				Set<String> names = entry.getValue();
-				names.add(member.cls.getName()+"/"+newName);
+			if (!sourceConflicts) {
+				sourceConflicts = true;
+				System.out.println("Mapping source name conflicts detected:");
+			}
 
-				System.out.printf("  %s %s %s (%s) -> %s%n", member.cls.getName(), member.type.name(), member.name, member.desc, names);
+			String newName = member.getNewMappedName();
+			Set<String> names = entry.getValue();
+			names.add(member.cls.getName()+"/"+newName);
 
-				if (ignoreConflicts) {
-					Map<String, String> mappings = member.type == TrMember.MemberType.METHOD ? methodMap : fieldMap;
-					String mappingName = mappings.get(member.cls.getName()+"/"+member.getId());
+			System.out.printf("  %s %s %s (%s) -> %s%n", member.cls.getName(), member.type.name(), member.name, member.desc, names);
 
-					if (mappingName == null) { // no direct mapping match, try parents
-						Queue<ClassInstance> queue = new ArrayDeque<>(member.cls.parents);
-						ClassInstance cls;
+			if (ignoreConflicts) {
+				String mappingName = memberMappings.get(member.type, member.cls.getName(), member.getId());
 
-						while ((cls = queue.poll()) != null) {
-							mappingName = mappings.get(cls.getName()+"/"+member.getId());
-							if (mappingName != null) break;
+				if (mappingName == null) { // no direct mapping match, try parents
+					Queue<ClassInstance> queue = new ArrayDeque<>(member.cls.parents);
+					ClassInstance cls;
 
-							queue.addAll(cls.parents);
-						}
-					}
+					while ((cls = queue.poll()) != null) {
+						mappingName = memberMappings.get(member.type, cls.getName(), member.getId());
+						if (mappingName != null) break;
 
-					if (mappingName == null) {
-						unfixableConflicts = true;
-					} else {
-						member.forceSetNewName(mappingName);
-						System.out.println("    fixable: replaced with "+mappingName);
+						queue.addAll(cls.parents);
 					}
 				}
+
+				if (mappingName == null) {
+					unfixableConflicts = true;
+				} else {
+					member.forceSetNewName(mappingName);
+					System.out.println("    fixable: replaced with "+mappingName);
+				}
 			}
 		}
 
-		if (!conflicts.isEmpty() && !ignoreConflicts || unfixableConflicts || targetNameCheckFailed) {
+		if (sourceConflicts && !ignoreConflicts || unfixableConflicts || targetNameCheckFailed) {
 			if (ignoreConflicts || targetNameCheckFailed) System.out.println("There were unfixable conflicts.");
 
 			throw new RuntimeException("Unfixable conflicts");
@@ -887,77 +1484,412 @@ public class TinyRemapper {
 			refresh();
 
 			if (outputBuffer == null) { // first (inputTags present) or full (no input tags) output invocation, process everything but don't output if input tags are present
-				BiConsumer<ClassInstance, byte[]> immediateOutputConsumer;
+				if (!hasInputTags && (!fixPackageAccess || fixPackageAccessInline)) { // nothing to keep, stream the output
+					applyStreaming((cls, data) -> outputConsumer.accept(getOutputName(cls), data), false);
 
-				if (fixPackageAccess || hasInputTags) { // need re-processing or output buffering for repeated applies
-					outputBuffer = new ConcurrentHashMap<>();
-					immediateOutputConsumer = outputBuffer::put;
-				} else {
-					immediateOutputConsumer = (cls, data) -> outputConsumer.accept(ClassInstance.getMrjName(cls.getContext().remapper.map(cls.getName()), cls.getMrjVersion()), data);
+					return;
 				}
 
-				List<Future<?>> futures = new ArrayList<>();
+				applyBuffered(hasInputTags);
 
-				for (MrjState state : mrjStates.values()) {
-					mrjRefresh(state);
+				if (!hasInputTags) { // only buffered for fixing package access, don't expect repeat invocations
+					for (Map.Entry<ClassInstance, byte[]> entry : outputBuffer.entrySet()) {
+						outputConsumer.accept(getOutputName(entry.getKey()), entry.getValue());
+					}
 
-					for (final ClassInstance cls : state.classes.values()) {
-						if (!cls.isInput) continue;
+					outputBuffer = null;
 
-						if (cls.data == null) {
-							if (!hasInputTags && !keepInputData) throw new IllegalStateException("invoking apply multiple times without input tags or hasInputData");
-							throw new IllegalStateException("data for input class " + cls + " is missing?!");
-						}
+					return;
+				}
+			}
 
-						futures.add(threadPool.submit(() -> immediateOutputConsumer.accept(cls, apply(cls))));
-					}
+			assert hasInputTags && outputBuffer != null;
+
+			// partial output selected by input tags
+			for (Map.Entry<ClassInstance, byte[]> entry : outputBuffer.entrySet()) {
+				ClassInstance cls = entry.getKey();
+
+				if (inputTags == null || cls.hasAnyInputTag(inputTags)) {
+					outputConsumer.accept(getOutputName(cls), entry.getValue());
 				}
+			}
+		}
+	}
 
-				waitForAll(futures);
+	/**
+	 * Remap all inputs and pass each class to the output consumers of the input tags it has been read with.
+	 *
+	 * <p>Unlike invoking {@link #apply(BiConsumer, InputTag...)} for every tag, this doesn't have to keep the whole
+	 * output in memory unless package access fixes have to be applied after remapping. The classes reach their outputs
+	 * as soon as they are remapped, the consumers are only invoked from the calling thread. Classes read without any
+	 * tag are passed to every consumer, those registered for a null tag receive all classes.
+	 *
+	 * @throws IllegalArgumentException if any of the tags wasn't created by this remapper
+	 */
+	public void apply(Map<InputTag, BiConsumer<String, byte[]>> outputConsumers) {
+		Map<InputTag, InputTag[]> tagArrays = singleInputTags.get();
 
-				boolean needsFixes = !classesToMakePublic.isEmpty() || !membersToMakePublic.isEmpty();
+		for (InputTag tag : outputConsumers.keySet()) {
+			if (tag != null && !tagArrays.containsKey(tag)) throw new IllegalArgumentException("input tag not created by this remapper: "+tag);
+		}
 
-				if (fixPackageAccess) {
-					if (needsFixes) {
-						System.out.printf("Fixing access for %d classes and %d members.%n", classesToMakePublic.size(), membersToMakePublic.size());
-					}
+		BiConsumer<ClassInstance, byte[]> router = (cls, data) -> {
+			String name = getOutputName(cls);
 
-					for (Map.Entry<ClassInstance, byte[]> entry : outputBuffer.entrySet()) {
-						ClassInstance cls = entry.getKey();
-						byte[] data = entry.getValue();
+			for (Map.Entry<InputTag, BiConsumer<String, byte[]>> entry : outputConsumers.entrySet()) {
+				InputTag tag = entry.getKey();
 
-						if (needsFixes) {
-							data = fixClass(cls, data);
-						}
+				if (tag == null || cls.hasAnyInputTag(tagArrays.get(tag))) {
+					entry.getValue().accept(name, data);
+				}
+			}
+		};
 
-						if (hasInputTags) {
-							entry.setValue(data);
-						} else {
-							outputConsumer.accept(ClassInstance.getMrjName(cls.getContext().remapper.map(cls.getName()), cls.getMrjVersion()), data);
-						}
-					}
+		synchronized (this) {
+			refresh();
 
-					if (!hasInputTags) outputBuffer = null; // don't expect repeat invocations
+			if (outputBuffer == null && (!fixPackageAccess || fixPackageAccessInline)) {
+				applyStreaming(router, true);
+			} else {
+				if (outputBuffer == null) applyBuffered(true); // kept for further apply invocations like in apply(BiConsumer, InputTag...)
 
-					classesToMakePublic.clear();
-					membersToMakePublic.clear();
-				} else if (needsFixes) {
-					throw new RuntimeException(String.format("%d classes and %d members need access fixes", classesToMakePublic.size(), membersToMakePublic.size()));
+				for (Map.Entry<ClassInstance, byte[]> entry : outputBuffer.entrySet()) {
+					router.accept(entry.getKey(), entry.getValue());
 				}
 			}
+		}
+	}
+
+	/**
+	 * Remap all inputs into {@link #outputBuffer}, fixing package access if enabled.
+	 */
+	private void applyBuffered(boolean hasInputTags) {
+		outputBuffer = new ConcurrentHashMap<>();
+
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.APPLY, PhaseMetrics.ALL_STATES);
+		LongAdder bytesWritten = recorder != null ? new LongAdder() : null;
+		List<CompletableFuture<?>> futures = Collections.synchronizedList(new ArrayList<>());
+
+		join(submitStates(outputBuffer::put, hasInputTags, recorder, bytesWritten, futures));
+		if (recorder != null) recorder.queueDepth = getQueueDepth();
+		join(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+
+		if (recorder != null) {
+			recorder.bytesWritten = bytesWritten.sum();
+			recorder.finish();
+		}
+
+		boolean needsFixes = !classesToMakePublic.isEmpty() || !membersToMakePublic.isEmpty();
+
+		if (fixPackageAccess) {
+			if (needsFixes) System.out.printf("Fixing access for %d classes and %d members.%n", classesToMakePublic.size(), membersToMakePublic.size());
 
-			assert hasInputTags == (outputBuffer != null);
+			if (needsFixes && !fixPackageAccessInline) {
+				recorder = startPhase(PhaseMetrics.Phase.FIX_PACKAGE_ACCESS, PhaseMetrics.ALL_STATES);
+
+				if (recorder != null) {
+					recorder.classes = classesToMakePublic.size();
+					recorder.members = membersToMakePublic.size();
+				}
 
-			if (outputBuffer != null) { // partial output selected by input tags
 				for (Map.Entry<ClassInstance, byte[]> entry : outputBuffer.entrySet()) {
-					ClassInstance cls = entry.getKey();
+					byte[] data = entry.getValue();
+
+					if (recorder != null) recorder.bytesRead += data.length;
+					data = fixClass(entry.getKey(), data);
+					if (recorder != null) recorder.bytesWritten += data.length;
+
+					entry.setValue(data);
+				}
+
+				if (recorder != null) recorder.finish();
+			}
+
+			classesToMakePublic.clear();
+			membersToMakePublic.clear();
+		} else if (needsFixes) {
+			throw new RuntimeException(String.format("%d classes and %d members need access fixes", classesToMakePublic.size(), membersToMakePublic.size()));
+		}
+	}
 
-					if (inputTags == null || cls.hasAnyInputTag(inputTags)) {
-						outputConsumer.accept(ClassInstance.getMrjName(cls.getContext().remapper.map(cls.getName()), cls.getMrjVersion()), entry.getValue());
+	/**
+	 * Remap all inputs and pass them to the supplied consumer on the calling thread as they complete.
+	 *
+	 * <p>The remapped classes are handed over through a bounded queue, the apply tasks wait for the consumer once the
+	 * queue is full. The calling thread only drains the queue, the MRJ states are refreshed on their own threads.
+	 */
+	private void applyStreaming(BiConsumer<ClassInstance, byte[]> outputConsumer, boolean hasInputTags) {
+		assert !fixPackageAccess || fixPackageAccessInline;
+
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.APPLY, PhaseMetrics.ALL_STATES);
+		LongAdder bytesWritten = recorder != null ? new LongAdder() : null;
+		List<CompletableFuture<?>> futures = Collections.synchronizedList(new ArrayList<>());
+		BlockingQueue<Map.Entry<ClassInstance, byte[]>> queue = new LinkedBlockingQueue<>(); // bounded by permits, except for the end marker
+		Semaphore permits = new Semaphore(threadCount * OUTPUT_QUEUE_SIZE_PER_THREAD);
+		Map.Entry<ClassInstance, byte[]> end = new AbstractMap.SimpleImmutableEntry<>(null, null);
+
+		CompletableFuture<Void> submitted = submitStates((cls, data) -> {
+			permits.acquireUninterruptibly();
+			queue.add(new AbstractMap.SimpleImmutableEntry<>(cls, data));
+		}, hasInputTags, recorder, bytesWritten, futures);
+		// wait for the submitted tasks even if a state failed, they may still be waiting for the queue
+		CompletableFuture<Void> done = submitted.handle((ignore, exc) -> {
+			if (recorder != null) recorder.queueDepth = getQueueDepth();
+
+			return futures.toArray(new CompletableFuture<?>[0]);
+		}).thenCompose(CompletableFuture::allOf);
+
+		done.whenComplete((ignore, exc) -> queue.add(end));
+
+		RuntimeException consumerException = null;
+
+		try {
+			Map.Entry<ClassInstance, byte[]> entry;
+
+			while ((entry = queue.take()) != end) {
+				permits.release();
+
+				if (consumerException == null) { // keep draining after a failure to not leave apply tasks waiting
+					try {
+						outputConsumer.accept(entry.getKey(), entry.getValue());
+					} catch (RuntimeException e) {
+						consumerException = e;
 					}
 				}
 			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+
+		join(submitted);
+		join(done);
+		if (consumerException != null) throw consumerException;
+
+		if (recorder != null) {
+			recorder.bytesWritten = bytesWritten.sum();
+			recorder.finish();
+		}
+
+		if (fixPackageAccess) {
+			if (!classesToMakePublic.isEmpty() || !membersToMakePublic.isEmpty()) {
+				System.out.printf("Fixing access for %d classes and %d members.%n", classesToMakePublic.size(), membersToMakePublic.size());
+			}
+
+			classesToMakePublic.clear();
+			membersToMakePublic.clear();
+		} else if (!classesToMakePublic.isEmpty() || !membersToMakePublic.isEmpty()) {
+			throw new RuntimeException(String.format("%d classes and %d members need access fixes", classesToMakePublic.size(), membersToMakePublic.size()));
+		}
+	}
+
+	/**
+	 * Find the classes and members that need to be made public for the inputs of a refreshed MRJ state, before any of
+	 * them gets remapped.
+	 *
+	 * <p>The checks only need the propagated mappings, so the remapping pass can fix the access flags right away
+	 * instead of rewriting the affected classes afterwards. Only the inputs whose accesses may break are checked, see
+	 * {@link PackageAccessChecker#mayBreakAccess}.
+	 */
+	private void findAccessFixes(MrjState state) {
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.FIX_PACKAGE_ACCESS, state.version);
+		Map<ClassInstance, Boolean> movedHierarchies = new HashMap<>();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (ClassInstance cls : state.classes.values()) {
+			if (!cls.isInput || cls.data == null) continue; // missing data is reported by apply
+			if (!PackageAccessChecker.mayBreakAccess(cls, movedHierarchies)) continue;
+
+			if (recorder != null) {
+				recorder.classes++;
+				recorder.members += cls.getMembers().size();
+				recorder.bytesRead += cls.data.length;
+			}
+
+			futures.add(threadPool.submit(() -> PackageAccessChecker.checkInput(cls)));
+		}
+
+		if (recorder != null) recorder.queueDepth = getQueueDepth();
+
+		waitForAll(futures);
+
+		if (recorder != null) recorder.finish();
+	}
+
+	/**
+	 * Refresh all MRJ states and submit their input classes for remapping as soon as each state is ready.
+	 *
+	 * <p>With inline package access fixes, each state is checked right after its refresh. Its classes may also be
+	 * made public by the checks of the copies in higher MRJ versions, so a state is only submitted once those have been
+	 * checked as well.
+	 *
+	 * @return a future completing once all classes have been submitted
+	 */
+	private CompletableFuture<Void> submitStates(BiConsumer<ClassInstance, byte[]> outputConsumer, boolean hasInputTags,
+			PhaseRecorder recorder, LongAdder bytesWritten, List<CompletableFuture<?>> futures) {
+		AtomicBoolean failed = new AtomicBoolean();
+		List<CompletableFuture<Void>> submitted = new ArrayList<>(mrjStates.size());
+
+		if (!fixPackageAccessInline) {
+			for (MrjState state : mrjStates.values()) {
+				submitted.add(runState(CompletableFuture.completedFuture(null), state, s -> {
+					mrjRefresh(s);
+					submitApply(s, outputConsumer, hasInputTags, recorder, bytesWritten, futures);
+				}, failed));
+			}
+
+			return CompletableFuture.allOf(submitted.toArray(new CompletableFuture<?>[0]));
+		}
+
+		Map<MrjState, CompletableFuture<Void>> checked = new HashMap<>();
+
+		for (MrjState state : mrjStates.values()) {
+			checked.put(state, runState(CompletableFuture.completedFuture(null), state, s -> {
+				mrjRefresh(s);
+				findAccessFixes(s);
+			}, failed));
+		}
+
+		for (MrjState state : mrjStates.values()) {
+			List<CompletableFuture<Void>> fixesFound = new ArrayList<>();
+
+			for (Map.Entry<MrjState, CompletableFuture<Void>> entry : checked.entrySet()) {
+				if (entry.getKey().version >= state.version) fixesFound.add(entry.getValue());
+			}
+
+			submitted.add(runState(CompletableFuture.allOf(fixesFound.toArray(new CompletableFuture<?>[0])), state,
+					s -> submitApply(s, outputConsumer, hasInputTags, recorder, bytesWritten, futures), failed));
+		}
+
+		return CompletableFuture.allOf(submitted.toArray(new CompletableFuture<?>[0]));
+	}
+
+	/**
+	 * Run the supplied task for a MRJ state on the MRJ state executor once {@code ready} completed.
+	 *
+	 * <p>The MRJ states are independent of each other and get processed concurrently by the MRJ state executor. The
+	 * pool threads can't drive a refresh since it waits for the propagation tasks it submits to the same pool. Once a
+	 * state failed, as recorded in {@code failed}, the tasks that didn't start yet are skipped.
+	 */
+	private CompletableFuture<Void> runState(CompletableFuture<?> ready, MrjState state, Consumer<MrjState> task, AtomicBoolean failed) {
+		return ready.thenRunAsync(() -> {
+			if (failed.get()) return;
+
+			try {
+				task.accept(state);
+			} catch (Throwable t) {
+				failed.set(true);
+				throw t;
+			}
+		}, mrjStateExecutor);
+	}
+
+	private void submitApply(MrjState state, BiConsumer<ClassInstance, byte[]> outputConsumer, boolean hasInputTags,
+			PhaseRecorder recorder, LongAdder bytesWritten, List<CompletableFuture<?>> futures) {
+		for (final ClassInstance cls : state.classes.values()) {
+			if (!cls.isInput) continue;
+
+			if (cls.data == null) {
+				if (!hasInputTags && !keepInputData) throw new IllegalStateException("invoking apply multiple times without input tags or hasInputData");
+				throw new IllegalStateException("data for input class " + cls + " is missing?!");
+			}
+
+			if (recorder == null) {
+				futures.add(CompletableFuture.runAsync(() -> outputConsumer.accept(cls, apply(cls)), threadPool));
+			} else {
+				synchronized (recorder) { // states may be submitted concurrently
+					recorder.classes++;
+					recorder.members += cls.getMembers().size();
+					recorder.bytesRead += cls.data.length;
+				}
+
+				futures.add(CompletableFuture.runAsync(() -> {
+					byte[] data = apply(cls);
+					bytesWritten.add(data.length);
+					outputConsumer.accept(cls, data);
+				}, threadPool));
+			}
+		}
+	}
+
+	private static String getOutputName(ClassInstance cls) {
+		return ClassInstance.getMrjName(cls.getContext().remapper.map(cls.getName()), cls.getMrjVersion());
+	}
+
+	/**
+	 * Wait for the future, rethrowing runtime exceptions it failed with as they are.
+	 */
+	private static void join(CompletableFuture<?> future) {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	private PhaseRecorder startPhase(PhaseMetrics.Phase phase, int mrjVersion) {
+		return metricsListener != null ? new PhaseRecorder(phase, mrjVersion) : null;
+	}
+
+	private int getQueueDepth() {
+		return threadPool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) threadPool).getQueue().size() : 0;
+	}
+
+	/**
+	 * Mutable counters for a running phase, only created if a {@link MetricsListener} is present.
+	 *
+	 * <p>The counters are written by the thread driving the phase, the resolve statistics are taken as the difference
+	 * of the counters of the phase's MRJ state, or the sum over all states, between start and finish.
+	 */
+	private final class PhaseRecorder {
+		PhaseRecorder(PhaseMetrics.Phase phase, int mrjVersion) {
+			this.phase = phase;
+			this.mrjVersion = mrjVersion;
+			this.state = mrjVersion != PhaseMetrics.ALL_STATES ? mrjStates.get(mrjVersion) : null;
+			this.startHits = sum(s -> s.resolveHits);
+			this.startMisses = sum(s -> s.resolveMisses);
+			this.startEvictions = sum(s -> s.resolveCacheEvictions);
+			this.startStringBytesSaved = stringBytesSaved != null ? stringBytesSaved.sum() : 0;
+			this.startTime = System.nanoTime();
+		}
+
+		void finish() {
+			long wallTime = System.nanoTime() - startTime;
+
+			metricsListener.onPhaseFinished(new PhaseMetrics(phase, mrjVersion, wallTime,
+					classes, members,
+					bytesRead, bytesWritten,
+					sum(s -> s.resolveHits) - startHits, sum(s -> s.resolveMisses) - startMisses, sum(s -> s.resolveCacheEvictions) - startEvictions,
+					globalResolveCache != null ? globalResolveCache.size() : 0,
+					stringBytesSaved != null ? stringBytesSaved.sum() - startStringBytesSaved : 0,
+					queueDepth));
 		}
+
+		private long sum(Function<MrjState, LongAdder> counter) {
+			if (state != null) return counter.apply(state).sum();
+
+			long ret = 0;
+
+			for (MrjState s : mrjStates.values()) {
+				ret += counter.apply(s).sum();
+			}
+
+			return ret;
+		}
+
+		private final PhaseMetrics.Phase phase;
+		private final int mrjVersion;
+		private final MrjState state; // null for all states
+		private final long startHits;
+		private final long startMisses;
+		private final long startEvictions;
+		private final long startStringBytesSaved;
+		private final long startTime;
+		int classes;
+		long members;
+		long bytesRead;
+		long bytesWritten;
+		int queueDepth;
 	}
 
 	/**
@@ -983,13 +1915,13 @@ public class TinyRemapper {
 				Map<String, ClassInstance> fromClasses = mrjStates.get(fromVersion.get()).classes;
 
 				for (ClassInstance cls: fromClasses.values()) {
-					addClass(cls.constructMrjCopy(newState), newState.classes, false);
+					addClass(cls.constructMrjCopy(newState), newState);
 				}
 			}
 		}
 	}
 
-	private void refresh() {
+	void refresh() {
 		if (!dirty) {
 			assert pendingReads.isEmpty();
 			assert readClasses.isEmpty();
@@ -1018,12 +1950,12 @@ public class TinyRemapper {
 				int clsVersion = cls.getMrjVersion();
 				MrjState state = mrjStates.get(clsVersion);
 				cls.setContext(state);
-				addClass(cls, state.classes, false);
+				addClass(cls, state);
 
 				for (int version: mrjStates.keySet()) {
 					if (version > clsVersion) {
 						MrjState newState = mrjStates.get(version);
-						addClass(cls.constructMrjCopy(newState), newState.classes, false);
+						addClass(cls.constructMrjCopy(newState), newState);
 					}
 				}
 			}
@@ -1031,14 +1963,32 @@ public class TinyRemapper {
 			readClasses.clear();
 		}
 
-		loadMappings();
-		checkClassMappings();
+		if (!mappingsLoaded) { // the mapping providers are fixed, new inputs don't affect their results
+			PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.LOAD_MAPPINGS, PhaseMetrics.ALL_STATES);
+			loadMappings();
+
+			if (recorder != null) {
+				recorder.classes = classMap.size();
+				recorder.members = memberMappings.size();
+				recorder.finish();
+			}
+
+			recorder = startPhase(PhaseMetrics.Phase.CHECK_CLASS_MAPPINGS, PhaseMetrics.ALL_STATES);
+			checkClassMappings();
+
+			if (recorder != null) {
+				recorder.classes = classMap.size();
+				recorder.finish();
+			}
+
+			mappingsLoaded = true;
+		}
 
 		assert dirty;
 		dirty = false;
 	}
 
-	private void mrjRefresh(MrjState state) {
+	void mrjRefresh(MrjState state) {
 		if (!state.dirty) {
 			return;
 		}
@@ -1046,23 +1996,94 @@ public class TinyRemapper {
 		assert new HashSet<>(state.classes.values()).size() == state.classes.size();
 		assert state.classes.values().stream().map(ClassInstance::getName).distinct().count() == state.classes.size();
 
-		merge(state);
-		propagate(state);
+		boolean incremental = incrementalPropagation && state.propagated && !state.fullRefresh;
+		Collection<ClassInstance> merged = incremental ? state.addedClasses : state.classes.values();
+		List<ClassInstance> adopted = null;
+
+		PhaseRecorder recorder = startPhase(PhaseMetrics.Phase.MERGE, state.version);
+
+		if (incremental) {
+			adopted = mergeAdded(state);
+		} else {
+			merge(state);
+		}
+
+		state.subtypes = new SubtypeOracle(state);
+
+		if (recorder != null) {
+			recorder.classes = merged.size();
+
+			for (ClassInstance cls : merged) {
+				recorder.members += cls.getMembers().size();
+			}
+
+			recorder.finish();
+		}
+
+		if (incremental) {
+			// the added classes and everything below the adopted classes, old classes can't be below added ones otherwise
+			Set<ClassInstance> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+			Deque<ClassInstance> queue = new ArrayDeque<>(adopted);
+			ClassInstance cls;
+
+			changed.addAll(state.addedClasses);
+			changed.addAll(adopted);
+
+			while ((cls = queue.pollFirst()) != null) {
+				for (ClassInstance child : cls.children) {
+					if (changed.add(child)) queue.addLast(child);
+				}
+			}
+
+			for (ClassInstance c : changed) {
+				c.clearResolvedMembers(); // resolution may now find members in the added classes
+			}
+
+			if (precomputeResolution) buildResolutionTables(changed);
+		} else if (precomputeResolution) {
+			buildResolutionTables(state.classes.values());
+		}
+
+		if (incremental) {
+			propagateAdded(state, adopted);
+		} else {
+			propagate(state, null);
+		}
 
-		for (StateProcessor processor : stateProcessors) {
-			processor.process(state);
+		synchronized (stateProcessors) { // not required to be thread safe
+			for (StateProcessor processor : stateProcessors) {
+				processor.process(state);
+			}
 		}
 
+		state.addedClasses.clear();
+		state.fullRefresh = false;
+		state.propagated = true;
 		state.dirty = false;
 	}
 
-	private byte[] apply(final ClassInstance cls) {
+	byte[] apply(final ClassInstance cls) {
 		ClassReader reader = new ClassReader(cls.data);
-		ClassWriter writer = new ClassWriter(0);
+
+		if (copyUnchangedClasses && isClassUnchanged(cls, reader)) {
+			byte[] ret = cls.data;
+			if (!keepInputData) cls.data = null;
+
+			return ret;
+		}
+
+		boolean[] unchangedMethods = copyUnchangedMethods
+				? new UnchangedMethodFinder(reader, cls.getContext().remapper, skipLocalMapping, renameInvalidLocals).find()
+				: null;
+		ClassWriter writer = unchangedMethods != null ? new ClassWriter(reader, 0) : new ClassWriter(0);
 		int flags = removeFrames ? ClassReader.SKIP_FRAMES : ClassReader.EXPAND_FRAMES;
 
 		ClassVisitor visitor = writer;
 
+		if (fixPackageAccessInline) {
+			visitor = createAccessFixer(cls, visitor);
+		}
+
 		if (check) {
 			visitor = new CheckClassAdapter(visitor);
 		}
@@ -1072,7 +2093,12 @@ public class TinyRemapper {
 		}
 
 		visitor = new AsmClassRemapper(visitor, cls.getContext().remapper, rebuildSourceFilenames,
-				checkPackageAccess, skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex);
+				skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex,
+				unchangedMethods, postApplyVisitors.isEmpty() && !check);
+
+		if (checkPackageAccess && !fixPackageAccessInline) { // otherwise checked ahead of applying
+			visitor = PackageAccessChecker.createChecker(visitor, cls.getContext().remapper);
+		}
 
 		for (int i = preApplyVisitors.size() - 1; i >= 0; i--) {
 			visitor = preApplyVisitors.get(i).insertApplyVisitor(cls, visitor);
@@ -1087,11 +2113,48 @@ public class TinyRemapper {
 		return writer.toByteArray();
 	}
 
+	/**
+	 * Determine whether applying would leave the class as is, which excludes generated bridges and access fixes.
+	 */
+	private boolean isClassUnchanged(ClassInstance cls, ClassReader reader) {
+		boolean compatBridges = propagateBridges == LinkedMethodPropagation.COMPATIBLE
+				|| propagateRecordComponents == LinkedMethodPropagation.COMPATIBLE;
+		boolean accessFixes = fixPackageAccessInline && !membersToMakePublic.isEmpty();
+
+		if (fixPackageAccessInline && classesToMakePublic.contains(cls)) return false;
+
+		if (compatBridges || accessFixes) {
+			for (MemberInstance member : cls.getMembers()) {
+				if (compatBridges && member.getNewBridgedName() != null
+						|| accessFixes && membersToMakePublic.contains(member)) {
+					return false;
+				}
+			}
+		}
+
+		return new UnchangedMethodFinder(reader, cls.getContext().remapper, skipLocalMapping, renameInvalidLocals).isClassUnchanged();
+	}
+
 	private byte[] fixClass(ClassInstance cls, byte[] data) {
+		ClassWriter writer = new ClassWriter(0);
+		ClassVisitor fixer = createAccessFixer(cls, writer);
+		if (fixer == writer) return data;
+
+		new ClassReader(data).accept(fixer, 0);
+
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Create a visitor making the class and its members public as recorded by the package access checks.
+	 *
+	 * @return the supplied visitor if nothing in the class needs to be changed
+	 */
+	private ClassVisitor createAccessFixer(ClassInstance cls, ClassVisitor next) {
 		boolean makeClsPublic = classesToMakePublic.contains(cls);
 		Set<String> clsMembersToMakePublic = null;
 
-		for (MemberInstance member : cls.getMembers()) {
+		for (MemberInstance member : membersToMakePublic.isEmpty() ? Collections.<MemberInstance>emptyList() : cls.getMembers()) {
 			if (membersToMakePublic.contains(member)) {
 				if (clsMembersToMakePublic == null) clsMembersToMakePublic = new HashSet<>();
 
@@ -1110,14 +2173,11 @@ public class TinyRemapper {
 			}
 		}
 
-		if (!makeClsPublic && clsMembersToMakePublic == null) return data;
+		if (!makeClsPublic && clsMembersToMakePublic == null) return next;
 
 		final Set<String> finalClsMembersToMakePublic = clsMembersToMakePublic;
 
-		ClassReader reader = new ClassReader(data);
-		ClassWriter writer = new ClassWriter(0);
-
-		reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+		return new ClassVisitor(Opcodes.ASM9, next) {
 			@Override
 			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
 				if (makeClsPublic) {
@@ -1146,9 +2206,7 @@ public class TinyRemapper {
 
 				return super.visitMethod(access, name, descriptor, signature, exceptions);
 			}
-		}, 0);
-
-		return writer.toByteArray();
+		};
 	}
 
 	public synchronized TrEnvironment getEnvironment() {
@@ -1173,7 +2231,11 @@ public class TinyRemapper {
 															propagatePrivate, propagateBridges, propagateRecordComponents, removeFrames, ignoreConflicts,
 															resolveMissing, checkPackageAccess, fixPackageAccess, rebuildSourceFilenames,
 															skipLocalMapping, renameInvalidLocals, invalidLvNamePattern, inferNameFromSameLvIndex,
-															analyzeVisitors, stateProcessors, preApplyVisitors, postApplyVisitors, extraRemapper);
+															analyzeVisitors, stateProcessors, preApplyVisitors, postApplyVisitors, extraRemapper,
+															metricsListener, classPathCache, incrementalPropagation,
+															iterativePropagation, precomputeResolution,
+															resolveCachePolicy, resolveCacheSize, stringPool != null,
+															copyUnchangedMethods, copyUnchangedClasses);
 
 				synchronized (TinyRemapper.this) {
 					refresh();
@@ -1181,9 +2243,9 @@ public class TinyRemapper {
 
 					remapper.singleInputTags.set(new IdentityHashMap<>(singleInputTags.get()));
 					remapper.classMap.putAll(classMap);
-					remapper.methodMap.putAll(methodMap);
 					remapper.localMap.putAll(localMap);
-					remapper.fieldMap.putAll(fieldMap);
+					remapper.memberMappings = memberMappings;
+					remapper.mappingsLoaded = true;
 					for (MrjState mrj : mrjStates.values()) {
 						MrjState remapperMRJ;
 						if (mrj.version == defaultState.version) {
@@ -1193,6 +2255,7 @@ public class TinyRemapper {
 						}
 
 						remapperMRJ.classes.putAll(mrj.classes);
+						remapperMRJ.nextOrdinal = mrj.nextOrdinal;
 						remapperMRJ.dirty = false; //Shouldn't be
 					}
 					remapper.dirty = false; //Shouldn't be
@@ -1214,36 +2277,6 @@ public class TinyRemapper {
 		}
 	}
 
-	private static String getClassName(String nameDesc, MemberType type) {
-		int descStart = getDescStart(nameDesc, type);
-		int nameStart = nameDesc.lastIndexOf('/', descStart - 1);
-		if (nameStart == -1) nameStart = 0;
-
-		return nameDesc.substring(0, nameStart);
-	}
-
-	private static String stripClassName(String nameDesc, MemberType type) {
-		int descStart = getDescStart(nameDesc, type);
-		int nameStart = nameDesc.lastIndexOf('/', descStart - 1);
-		if (nameStart == -1) nameStart = 0;
-
-		return nameDesc.substring(nameStart + 1);
-	}
-
-	private static int getDescStart(String nameDesc, MemberType type) {
-		int ret;
-
-		if (type == TrMember.MemberType.METHOD) {
-			ret = nameDesc.indexOf('(');
-		} else {
-			ret = nameDesc.indexOf(";;");
-		}
-
-		if (ret == -1) ret = nameDesc.length();
-
-		return ret;
-	}
-
 	enum Direction {
 		ANY,
 		UP,
@@ -1251,44 +2284,51 @@ public class TinyRemapper {
 	}
 
 	class Propagation implements Runnable {
-		Propagation(MrjState state, MemberType type, List<Map.Entry<String, String>> tasks) {
+		Propagation(MrjState state, List<MemberMappings.OwnerMappings> tasks, Predicate<MemberMappings.Mapping> filter) {
 			this.state = state;
-			this.type = type;
 			this.tasks.addAll(tasks);
+			this.filter = filter;
 		}
 
 		@Override
 		public void run() {
-			Set<ClassInstance> visitedUp = Collections.newSetFromMap(new IdentityHashMap<>());
-			Set<ClassInstance> visitedDown = Collections.newSetFromMap(new IdentityHashMap<>());
-
-			for (Map.Entry<String, String> entry : tasks) {
-				String className = getClassName(entry.getKey(), type);
-				ClassInstance cls = state.getClass(className);
+			for (MemberMappings.OwnerMappings owner : tasks) {
+				ClassInstance cls = state.getClass(owner.owner);
 				if (cls == null) continue; // not available for this Side
 
-				String idSrc = stripClassName(entry.getKey(), type);
-				String nameDst = entry.getValue();
-				assert nameDst.indexOf('/') < 0;
+				for (MemberMappings.Mapping mapping : owner.getRenames()) { // only mappings with a name change
+					if (filter != null && !filter.test(mapping)) continue;
 
-				if (MemberInstance.getNameFromId(type, idSrc, ignoreFieldDesc).equals(nameDst)) {
-					continue; // no name change
-				}
+					MemberInstance member = resolveMissing ? cls.resolve(mapping.type, mapping.id) : cls.getMember(mapping.type, mapping.id);
 
-				MemberInstance member = resolveMissing ? cls.resolve(type, idSrc) : cls.getMember(type, idSrc);
+					if (member == null) {
+						// not available for this Side
+						continue;
+					}
 
-				if (member == null) {
-					// not available for this Side
-					continue;
+					Propagator.propagate(member, mapping.id, mapping.newName);
 				}
-
-				Propagator.propagate(member, idSrc, nameDst, visitedUp, visitedDown);
 			}
 		}
 
 		private final MrjState state;
-		private final MemberType type;
-		private final List<Map.Entry<String, String>> tasks = new ArrayList<>();
+		private final List<MemberMappings.OwnerMappings> tasks = new ArrayList<>();
+		private final Predicate<MemberMappings.Mapping> filter;
+	}
+
+	public enum ResolveCachePolicy {
+		/**
+		 * Keep every resolution result until the remapper is finished.
+		 */
+		UNBOUNDED,
+		/**
+		 * Keep up to a fixed number of results per class, evicting the least recently used ones.
+		 */
+		PER_CLASS,
+		/**
+		 * Keep up to a fixed number of results across all classes, evicting the least recently used ones.
+		 */
+		GLOBAL
 	}
 
 	public enum LinkedMethodPropagation {
@@ -1337,10 +2377,8 @@ public class TinyRemapper {
 		@Override
 		public void propagate(TrMember m, String newName) {
 			MemberInstance member = (MemberInstance) m;
-			Set<ClassInstance> visitedUp = Collections.newSetFromMap(new IdentityHashMap<>());
-			Set<ClassInstance> visitedDown = Collections.newSetFromMap(new IdentityHashMap<>());
 
-			Propagator.propagate(member, member.getId(), newName, visitedUp, visitedDown);
+			Propagator.propagate(member, member.getId(), newName);
 		}
 
 		final TinyRemapper tr;
@@ -1348,6 +2386,17 @@ public class TinyRemapper {
 		final Map<String, ClassInstance> classes = new HashMap<>();
 		final AsmRemapper remapper;
 		volatile boolean dirty = true;
+		int nextOrdinal; // never reused, replaced classes may still be linked to others
+		SubtypeOracle subtypes = new SubtypeOracle(this); // replaced after every merge
+		// incremental propagation state
+		boolean propagated;
+		boolean fullRefresh;
+		final List<ClassInstance> addedClasses = new ArrayList<>();
+		final Map<String, List<ClassInstance>> unresolvedParents = new HashMap<>();
+		// resolution statistics of the state's classes, only counted if metrics are collected
+		final LongAdder resolveHits = new LongAdder();
+		final LongAdder resolveMisses = new LongAdder();
+		final LongAdder resolveCacheEvictions = new LongAdder();
 	}
 
 	private final boolean check = false;
@@ -1357,6 +2406,7 @@ public class TinyRemapper {
 	final boolean propagatePrivate;
 	final LinkedMethodPropagation propagateBridges;
 	final LinkedMethodPropagation propagateRecordComponents;
+	final boolean iterativePropagation;
 	private final boolean removeFrames;
 	private final boolean ignoreConflicts;
 	private final boolean resolveMissing;
@@ -1370,8 +2420,20 @@ public class TinyRemapper {
 	private final List<AnalyzeVisitorProvider> analyzeVisitors;
 	private final List<StateProcessor> stateProcessors;
 	private final List<ApplyVisitorProvider> preApplyVisitors;
+	private final boolean fixPackageAccessInline; // access checked ahead of applying, pre apply visitors may change what is accessed
+	private final boolean copyUnchangedMethods; // only if the code isn't visited for anything but remapping
+	private final boolean copyUnchangedClasses; // only if nothing but remapping may change the class
 	private final List<ApplyVisitorProvider> postApplyVisitors;
 	final Remapper extraRemapper;
+	final MetricsListener metricsListener;
+	private final ClassPathCache classPathCache;
+	private final boolean incrementalPropagation;
+	private final boolean precomputeResolution;
+	final ResolveCachePolicy resolveCachePolicy;
+	final int resolveCacheSize;
+	final ResolveCache.Global globalResolveCache;
+	final StringPool stringPool; // null unless deduplicating strings
+	private final LongAdder stringBytesSaved; // null unless deduplicating strings and collecting metrics
 
 	final AtomicReference<Map<InputTag, InputTag[]>> singleInputTags = new AtomicReference<>(Collections.emptyMap()); // cache for tag -> { tag }
 
@@ -1386,9 +2448,8 @@ public class TinyRemapper {
 	}
 
 	final Map<String, String> classMap = new HashMap<>();
-	final Map<String, String> methodMap = new HashMap<>();
 	final Map<String, String[]> localMap = new HashMap<>();
-	final Map<String, String> fieldMap = new HashMap<>();
+	MemberMappings memberMappings = MemberMappings.EMPTY;
 	final Map<MemberInstance, Set<String>> conflicts = new ConcurrentHashMap<>();
 	final Set<ClassInstance> classesToMakePublic = Collections.newSetFromMap(new ConcurrentHashMap<>());
 	final Set<MemberInstance> membersToMakePublic = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -1396,7 +2457,12 @@ public class TinyRemapper {
 	final boolean ignoreFieldDesc;
 	private final int threadCount;
 	private final ExecutorService threadPool;
+	private final ThreadPoolExecutor mrjStateExecutor; // drives the MRJ state refreshes, which wait for the thread pool
+	private static final int MIN_ARCHIVE_CHUNK_SIZE = 64;
+	private static final int OUTPUT_QUEUE_SIZE_PER_THREAD = 4;
+	private static final int MAX_CONCURRENT_MRJ_STATES = 4;
 
+	private boolean mappingsLoaded;
 	private volatile boolean dirty = true; // volatile to make the state debug asserts more reliable, shouldn't actually see concurrent modifications
 	private Map<ClassInstance, byte[]> outputBuffer;
 }
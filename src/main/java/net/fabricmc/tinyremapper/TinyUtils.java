@@ -23,6 +23,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,11 +33,17 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.BiConsumer;
 import java.util.function.UnaryOperator;
 import java.util.zip.GZIPInputStream;
@@ -158,17 +166,51 @@ public final class TinyUtils {
 	}
 
 	private static MappingProvider createInternalMappingProvider(final Path mappings, String fromM, String toM) {
-		return (classMap, fieldMap, methodMap, localMap) -> {
-			try (BufferedReader reader = getMappingReader(mappings)) {
-				readInternal(reader, fromM, toM, classMap, fieldMap, methodMap, localMap);
+		return new MappingProvider() {
+			@Override
+			public void load(Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap) {
+				load(classMap, fieldMap, methodMap, localMap, null);
+			}
+
+			@Override
+			public void load(Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap, ExecutorService executor) {
+				try (BufferedReader reader = getMappingReader(mappings)) {
+					readInternal(reader, fromM, toM, classMap, fieldMap, methodMap, localMap, executor);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+
+				//System.out.printf("%s: %d classes, %d methods, %d fields%n", mappings.getFileName().toString(), classMap.size(), methodMap.size(), fieldMap.size());
+			}
+		};
+	}
+
+	/**
+	 * Create a mapping provider for a file written by {@link #compileMappings}.
+	 *
+	 * <p>The file has to be compiled for the same namespaces, loading fails otherwise.
+	 */
+	public static IMappingProvider createCompiledMappingProvider(final Path compiledMappings, String fromM, String toM) {
+		return (MappingProvider) (classMap, fieldMap, methodMap, localMap) -> {
+			try {
+				CompiledMappings.load(compiledMappings, fromM, toM, classMap, fieldMap, methodMap, localMap);
 			} catch (IOException e) {
 				throw new RuntimeException(e);
 			}
-
-			//System.out.printf("%s: %d classes, %d methods, %d fields%n", mappings.getFileName().toString(), classMap.size(), methodMap.size(), fieldMap.size());
 		};
 	}
 
+	/**
+	 * Convert the supplied mappings to the compiled binary format, to be loaded with
+	 * {@link #createCompiledMappingProvider}.
+	 *
+	 * <p>The compiled file holds the fully processed tables for one {@code fromM} -> {@code toM} namespace pair, the
+	 * provider is expected to already use those namespaces.
+	 */
+	public static void compileMappings(IMappingProvider mappings, String fromM, String toM, Path output) throws IOException {
+		CompiledMappings.compile(mappings, fromM, toM, output);
+	}
+
 	private static BufferedReader getMappingReader(Path file) throws IOException {
 		InputStream is = Files.newInputStream(file);
 
@@ -184,27 +226,59 @@ public final class TinyUtils {
 	}
 
 	private static MappingProvider createInternalMappingProvider(final BufferedReader reader, String fromM, String toM) {
-		return (classMap, fieldMap, methodMap, localMap) -> {
-			try {
-				readInternal(reader, fromM, toM, classMap, fieldMap, methodMap, localMap);
-			} catch (IOException e) {
-				throw new RuntimeException(e);
+		return new MappingProvider() {
+			@Override
+			public void load(Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap) {
+				load(classMap, fieldMap, methodMap, localMap, null);
 			}
 
-			//System.out.printf("%d classes, %d methods, %d fields%n", classMap.size(), methodMap.size(), fieldMap.size());
+			@Override
+			public void load(Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap, ExecutorService executor) {
+				try {
+					readInternal(reader, fromM, toM, classMap, fieldMap, methodMap, localMap, executor);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+
+				//System.out.printf("%d classes, %d methods, %d fields%n", classMap.size(), methodMap.size(), fieldMap.size());
+			}
 		};
 	}
 
-	private static void readInternal(BufferedReader reader, String fromM, String toM, Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap) throws IOException {
-		TinyUtils.read(reader, fromM, toM, (classFrom, classTo) -> {
-			classMap.put(classFrom, classTo);
-		}, (fieldFrom, nameTo) -> {
+	private static void readInternal(BufferedReader reader, String fromM, String toM,
+			Map<String, String> classMap, Map<String, String> fieldMap, Map<String, String> methodMap, Map<String, String[]> localMap,
+			ExecutorService executor) throws IOException {
+		BiConsumer<String, String> classMappingConsumer = classMap::put;
+		BiConsumer<Mapping, String> fieldMappingConsumer = (fieldFrom, nameTo) -> {
 			fieldMap.put(fieldFrom.owner + '/' + MemberInstance.getFieldId(fieldFrom.name, fieldFrom.desc, false), nameTo);
-		}, (methodFrom, nameTo) -> {
+		};
+		BiConsumer<Mapping, String> methodMappingConsumer = (methodFrom, nameTo) -> {
 			methodMap.put(methodFrom.owner + '/' + MemberInstance.getMethodId(methodFrom.name, methodFrom.desc), nameTo);
-		}, (methodFrom, paramNames) -> {
+		};
+		BiConsumer<Mapping, String[]> localMappingConsumer = (methodFrom, paramNames) -> {
 			localMap.put(methodFrom.owner + '/' + MemberInstance.getMethodId(methodFrom.name, methodFrom.desc), paramNames);
-		});
+		};
+
+		if (executor == null) {
+			TinyUtils.read(reader, fromM, toM, classMappingConsumer, fieldMappingConsumer, methodMappingConsumer, localMappingConsumer);
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+		int len;
+
+		while ((len = reader.read(buffer)) >= 0) {
+			sb.append(buffer, 0, len);
+		}
+
+		String content = sb.toString();
+
+		if (content.startsWith("tiny\t2\t")) {
+			readV2Parallel(content, fromM, toM, executor, classMappingConsumer, fieldMappingConsumer, methodMappingConsumer, localMappingConsumer);
+		} else {
+			TinyUtils.read(new BufferedReader(new StringReader(content)), fromM, toM, classMappingConsumer, fieldMappingConsumer, methodMappingConsumer, localMappingConsumer);
+		}
 	}
 
 	@Deprecated
@@ -308,134 +382,305 @@ public final class TinyUtils {
 			BiConsumer<Mapping, String> fieldMappingConsumer,
 			BiConsumer<Mapping, String> methodMappingConsumer,
 			BiConsumer<Mapping, String[]> localMappingConsumer) throws IOException {
-		String[] parts;
+		V2Chunk chunk = new V2Chunk(from, to, headerLine, true, false);
+		chunk.classMappingConsumer = classMappingConsumer;
+		chunk.parse(reader, 1);
+		chunk.finish(null, fieldMappingConsumer, methodMappingConsumer, localMappingConsumer);
+	}
+
+	/**
+	 * Parse tiny v2 content with the class sections distributed across the executor.
+	 *
+	 * <p>The content is split before top level class lines, which don't depend on any preceding state besides the
+	 * header. The chunk results are merged in file order and the descriptor fixing for a non-primary source namespace
+	 * runs in parallel as well. The consumers are only invoked from the calling thread.
+	 */
+	private static void readV2Parallel(String content, String from, String to, ExecutorService executor,
+			BiConsumer<String, String> classMappingConsumer,
+			BiConsumer<Mapping, String> fieldMappingConsumer,
+			BiConsumer<Mapping, String> methodMappingConsumer,
+			BiConsumer<Mapping, String[]> localMappingConsumer) throws IOException {
+		int pos = content.indexOf('\n');
+		if (pos < 0) pos = content.length();
 
-		if (!headerLine.startsWith("tiny\t2\t") || (parts = splitAtTab(headerLine, 0, 5)).length < 5) { //min. tiny + major version + minor version + 2 name spaces
-			throw new IOException("Invalid/unsupported tiny file (incorrect header)");
+		String headerLine = content.substring(0, pos > 0 && content.charAt(pos - 1) == '\r' ? pos - 1 : pos);
+		V2Chunk merged = new V2Chunk(from, to, headerLine, false, false);
+
+		// header properties, the only state shared by all chunks
+		while (pos + 1 < content.length() && "\t\r\n".indexOf(content.charAt(pos + 1)) >= 0) {
+			int end = content.indexOf('\n', pos + 1);
+			if (end < 0) end = content.length();
+
+			String key = "\tescaped-names";
+			int keyEnd = pos + 1 + key.length();
+
+			if (content.startsWith(key, pos + 1)
+					&& (keyEnd == end || "\t\r".indexOf(content.charAt(keyEnd)) >= 0)) {
+				merged.escapedNames = true;
+			}
+
+			pos = end;
 		}
 
-		List<String> namespaces = Arrays.asList(parts).subList(3, parts.length);
-		int nsA = namespaces.indexOf(from);
-		int nsB = namespaces.indexOf(to);
-		Map<String, String> obfFrom = nsA != 0 ? new HashMap<>() : null;
+		int bodyStart = Math.min(pos + 1, content.length());
+		int chunkSize = Math.max(MIN_PARALLEL_CHUNK_CHARS, (content.length() - bodyStart) / (getParallelism(executor) * 4));
+		List<CompletableFuture<V2Chunk>> futures = new ArrayList<>();
 
-		Map<String, String> classes = new HashMap<>();
-		Map<Mapping, String> methods = new HashMap<>();
-		Map<Mapping, String> fields = new HashMap<>();
-		Map<Mapping, String[]> locals = new HashMap<>();
+		for (int chunkStart = bodyStart; chunkStart < content.length(); ) {
+			int chunkEnd = chunkStart + chunkSize >= content.length() ? -1 : content.indexOf("\nc\t", chunkStart + chunkSize);
+			chunkEnd = chunkEnd < 0 ? content.length() : chunkEnd + 1;
 
-		int partCountHint = 2 + namespaces.size(); // suitable for members, which should be the majority
-		boolean escapedNames = false;
+			String chunkContent = content.substring(chunkStart, chunkEnd);
+			boolean escapedNames = merged.escapedNames;
 
-		boolean inHeader = true;
-		boolean inClass = false;
-		boolean inMethod = false;
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					V2Chunk chunk = new V2Chunk(from, to, headerLine, false, escapedNames);
+					chunk.parse(new BufferedReader(new StringReader(chunkContent)), 0);
 
-		String className = null;
-		Mapping member = null;
+					return chunk;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, executor));
 
-		int lineNumber = 1;
-		for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
-			if (line.isEmpty()) continue;
+			chunkStart = chunkEnd;
+		}
 
-			int indent = 0;
-			while (indent < line.length() && line.charAt(indent) == '\t') {
-				indent++;
+		try {
+			for (CompletableFuture<V2Chunk> future : futures) {
+				merged.merge(future.join());
+			}
+		} catch (CompletionException e) {
+			// parse sequentially to report the error with the correct line number
+			try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+				readV2(reader, from, to, reader.readLine(), (a, b) -> { }, (a, b) -> { }, (a, b) -> { }, (a, b) -> { });
 			}
 
-			parts = splitAtTab(line, indent, partCountHint);
-			String section = parts[0];
+			throw e;
+		}
 
-			if (indent == 0) {
-				inHeader = inClass = inMethod = false;
+		for (Entry<String, String> entry : merged.classes.entrySet()) {
+			classMappingConsumer.accept(entry.getKey(), entry.getValue());
+		}
 
-				if ("c".equals(section)) { // class: c <names>...
-					if (parts.length != namespaces.size() + 1) throw new IOException("Invalid class declaration on line " + lineNumber);
+		merged.finish(executor, fieldMappingConsumer, methodMappingConsumer, localMappingConsumer);
+	}
 
-					className = unescapeOpt(parts[1 + nsA], escapedNames);
-					String mappedName = unescapeOpt(parts[1 + nsB], escapedNames);
+	/**
+	 * Determine how many tasks the executor runs at once, which the parallel parsing splits its work for.
+	 */
+	private static int getParallelism(ExecutorService executor) {
+		if (executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).getCorePoolSize() > 0) {
+			return ((ThreadPoolExecutor) executor).getCorePoolSize();
+		} else if (executor instanceof ForkJoinPool) {
+			return ((ForkJoinPool) executor).getParallelism();
+		} else {
+			return Runtime.getRuntime().availableProcessors();
+		}
+	}
 
-					if (!mappedName.isEmpty()) {
-						classMappingConsumer.accept(className, mappedName);
-						classes.put(className, mappedName);
-						if (obfFrom != null) obfFrom.put(unescapeOpt(parts[1], escapedNames), mappedName);
-					}
+	/**
+	 * Parser state and results for a sequence of tiny v2 lines.
+	 */
+	private static final class V2Chunk {
+		V2Chunk(String from, String to, String headerLine, boolean inHeader, boolean escapedNames) throws IOException {
+			String[] parts;
 
-					inClass = true;
-				}
-			} else if (indent == 1) {
-				inMethod = false;
+			if (!headerLine.startsWith("tiny\t2\t") || (parts = splitAtTab(headerLine, 0, 5)).length < 5) { //min. tiny + major version + minor version + 2 name spaces
+				throw new IOException("Invalid/unsupported tiny file (incorrect header)");
+			}
 
-				if (inHeader) { // header k/v
-					if ("escaped-names".equals(section)) {
-						escapedNames = true;
-					}
-				} else if (inClass && ("m".equals(section) || "f".equals(section))) { // method/field: m/f <descA> <names>...
-					boolean isMethod = "m".equals(section);
-					if (parts.length != namespaces.size() + 2) throw new IOException("Invalid " + (isMethod ? "metho" : "fiel") + "d declaration on line " + lineNumber);
+			List<String> namespaces = Arrays.asList(parts).subList(3, parts.length);
+			this.namespaceCount = namespaces.size();
+			this.nsA = namespaces.indexOf(from);
+			this.nsB = namespaces.indexOf(to);
+			this.obfFrom = nsA != 0 ? new HashMap<>() : null;
+			this.inHeader = inHeader;
+			this.escapedNames = escapedNames;
+		}
+
+		void parse(BufferedReader reader, int lineNumber) throws IOException {
+			int partCountHint = 2 + namespaceCount; // suitable for members, which should be the majority
+
+			boolean inClass = false;
+			boolean inMethod = false;
 
-					String memberDesc = unescapeOpt(parts[1], escapedNames);
-					String memberName = unescapeOpt(parts[2 + nsA], escapedNames);
-					String mappedName = unescapeOpt(parts[2 + nsB], escapedNames);
-					member = new Mapping(className, memberName, memberDesc);
-					inMethod = isMethod;
+			String className = null;
+			Mapping member = null;
 
-					if (!mappedName.isEmpty()) (isMethod ? methods : fields).put(member, mappedName);
+			for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
+				if (line.isEmpty()) continue;
+
+				int indent = 0;
+				while (indent < line.length() && line.charAt(indent) == '\t') {
+					indent++;
 				}
-			} else if (indent == 2) {
-				if (inMethod && "p".equals(section)) { // method parameter: p <lv-index> <names>...
-					if (parts.length != namespaces.size() + 2) throw new IOException("Invalid method parameter declaration on line " + lineNumber);
-
-					String mappedName = unescapeOpt(parts[2 + nsB], escapedNames);
-					if (!mappedName.isEmpty()) {
-						int varLvIndex = Integer.parseInt(parts[1]);
-
-						String[] methodLocals = locals.get(member);
-						if (methodLocals == null || methodLocals.length <= varLvIndex) {
-							String[] longerLocals = new String[varLvIndex + 1];
-							if (methodLocals != null) System.arraycopy(methodLocals, 0, longerLocals, 0, methodLocals.length);
-							locals.put(member, methodLocals = longerLocals);
+
+				String[] parts = splitAtTab(line, indent, partCountHint);
+				String section = parts[0];
+
+				if (indent == 0) {
+					inHeader = inClass = inMethod = false;
+
+					if ("c".equals(section)) { // class: c <names>...
+						if (parts.length != namespaceCount + 1) throw new IOException("Invalid class declaration on line " + lineNumber);
+
+						className = unescapeOpt(parts[1 + nsA], escapedNames);
+						String mappedName = unescapeOpt(parts[1 + nsB], escapedNames);
+
+						if (!mappedName.isEmpty()) {
+							if (classMappingConsumer != null) classMappingConsumer.accept(className, mappedName);
+							classes.put(className, mappedName);
+							if (obfFrom != null) obfFrom.put(unescapeOpt(parts[1], escapedNames), mappedName);
+						}
+
+						inClass = true;
+					}
+				} else if (indent == 1) {
+					inMethod = false;
+
+					if (inHeader) { // header k/v
+						if ("escaped-names".equals(section)) {
+							escapedNames = true;
 						}
+					} else if (inClass && ("m".equals(section) || "f".equals(section))) { // method/field: m/f <descA> <names>...
+						boolean isMethod = "m".equals(section);
+						if (parts.length != namespaceCount + 2) throw new IOException("Invalid " + (isMethod ? "metho" : "fiel") + "d declaration on line " + lineNumber);
+
+						String memberDesc = unescapeOpt(parts[1], escapedNames);
+						String memberName = unescapeOpt(parts[2 + nsA], escapedNames);
+						String mappedName = unescapeOpt(parts[2 + nsB], escapedNames);
+						member = new Mapping(className, memberName, memberDesc);
+						inMethod = isMethod;
 
-						assert methodLocals[varLvIndex] == null;
-						methodLocals[varLvIndex] = mappedName;
+						if (!mappedName.isEmpty()) (isMethod ? methods : fields).put(member, mappedName);
 					}
-				} else if (inMethod && "v".equals(section)) { // method variable: v <lv-index> <lv-start-offset> <optional-lvt-index> <names>...
-					if (parts.length != namespaces.size() + 4) throw new IOException("Invalid method variable declaration on line " + lineNumber);
+				} else if (indent == 2) {
+					if (inMethod && "p".equals(section)) { // method parameter: p <lv-index> <names>...
+						if (parts.length != namespaceCount + 2) throw new IOException("Invalid method parameter declaration on line " + lineNumber);
+
+						String mappedName = unescapeOpt(parts[2 + nsB], escapedNames);
+						if (!mappedName.isEmpty()) {
+							int varLvIndex = Integer.parseInt(parts[1]);
+
+							String[] methodLocals = locals.get(member);
+							if (methodLocals == null || methodLocals.length <= varLvIndex) {
+								String[] longerLocals = new String[varLvIndex + 1];
+								if (methodLocals != null) System.arraycopy(methodLocals, 0, longerLocals, 0, methodLocals.length);
+								locals.put(member, methodLocals = longerLocals);
+							}
+
+							assert methodLocals[varLvIndex] == null;
+							methodLocals[varLvIndex] = mappedName;
+						}
+					} else if (inMethod && "v".equals(section)) { // method variable: v <lv-index> <lv-start-offset> <optional-lvt-index> <names>...
+						if (parts.length != namespaceCount + 4) throw new IOException("Invalid method variable declaration on line " + lineNumber);
 
-					String mappedName = unescapeOpt(parts[4 + nsB], escapedNames);
-					if (!mappedName.isEmpty()) {
-						int varLvIndex = Integer.parseInt(parts[1]);
-						int varStartOpIdx = Integer.parseInt(parts[2]);
-						int varLvtIndex = Integer.parseInt(parts[3]);
+						String mappedName = unescapeOpt(parts[4 + nsB], escapedNames);
+						if (!mappedName.isEmpty()) {
+							int varLvIndex = Integer.parseInt(parts[1]);
+							int varStartOpIdx = Integer.parseInt(parts[2]);
+							int varLvtIndex = Integer.parseInt(parts[3]);
 
-						//Don't currently support this as it stands, neither does Yarn so it could be worse
-						throw new UnsupportedOperationException(String.format("%1$s local %2$d: %5$s, start @ %3$d, index %4$d", member, varLvIndex, varStartOpIdx, varLvtIndex, mappedName));
+							//Don't currently support this as it stands, neither does Yarn so it could be worse
+							throw new UnsupportedOperationException(String.format("%1$s local %2$d: %5$s, start @ %3$d, index %4$d", member, varLvIndex, varStartOpIdx, varLvtIndex, mappedName));
+						}
 					}
 				}
 			}
 		}
 
-		UnaryOperator<Mapping> descFixer, methodDescFixer;
-		if (obfFrom != null) {
-			Remapper remapper = new SimpleClassMapper(obfFrom);
-			descFixer = mapping -> new Mapping(mapping.owner, mapping.name, remapper.mapDesc(mapping.desc));
-			methodDescFixer = mapping -> new Mapping(mapping.owner, mapping.name, remapper.mapMethodDesc(mapping.desc));
-		} else {
-			methodDescFixer = descFixer = UnaryOperator.identity();
-		}
+		/**
+		 * Append the results of a chunk following this one in the file.
+		 */
+		void merge(V2Chunk next) {
+			classes.putAll(next.classes);
+			if (obfFrom != null) obfFrom.putAll(next.obfFrom);
+			methods.putAll(next.methods);
+			fields.putAll(next.fields);
+
+			for (Entry<Mapping, String[]> entry : next.locals.entrySet()) {
+				locals.merge(entry.getKey(), entry.getValue(), (prev, cur) -> { // same method declared in multiple chunks
+					String[] ret = Arrays.copyOf(prev, Math.max(prev.length, cur.length));
+
+					for (int i = 0; i < cur.length; i++) {
+						if (cur[i] != null) ret[i] = cur[i];
+					}
 
-		for (Entry<Mapping, String> entry : methods.entrySet()) {
-			methodMappingConsumer.accept(methodDescFixer.apply(entry.getKey()), entry.getValue());
+					return ret;
+				});
+			}
 		}
-		for (Entry<Mapping, String> entry : fields.entrySet()) {
-			fieldMappingConsumer.accept(descFixer.apply(entry.getKey()), entry.getValue());
+
+		void finish(ExecutorService executor,
+				BiConsumer<Mapping, String> fieldMappingConsumer,
+				BiConsumer<Mapping, String> methodMappingConsumer,
+				BiConsumer<Mapping, String[]> localMappingConsumer) {
+			if (obfFrom != null) {
+				Remapper remapper = new SimpleClassMapper(obfFrom);
+
+				fixDescs(methods, mapping -> new Mapping(mapping.owner, mapping.name, remapper.mapMethodDesc(mapping.desc)), executor, methodMappingConsumer);
+				fixDescs(fields, mapping -> new Mapping(mapping.owner, mapping.name, remapper.mapDesc(mapping.desc)), executor, fieldMappingConsumer);
+			} else {
+				for (Entry<Mapping, String> entry : methods.entrySet()) {
+					methodMappingConsumer.accept(entry.getKey(), entry.getValue());
+				}
+
+				for (Entry<Mapping, String> entry : fields.entrySet()) {
+					fieldMappingConsumer.accept(entry.getKey(), entry.getValue());
+				}
+			}
+
+			for (Entry<Mapping, String[]> entry : locals.entrySet()) {
+				Mapping mapping = entry.getKey();
+				localMappingConsumer.accept(new Mapping(classes.getOrDefault(mapping.owner, mapping.owner), mapping.name, mapping.desc), entry.getValue());
+			}
 		}
 
-		for (Entry<Mapping, String[]> entry : locals.entrySet()) {
-			Mapping mapping = entry.getKey();
-			localMappingConsumer.accept(new Mapping(classes.getOrDefault(mapping.owner, mapping.owner), mapping.name, mapping.desc), entry.getValue());
+		private static void fixDescs(Map<Mapping, String> mappings, UnaryOperator<Mapping> descFixer, ExecutorService executor, BiConsumer<Mapping, String> consumer) {
+			List<Entry<Mapping, String>> entries = new ArrayList<>(mappings.entrySet());
+			Mapping[] fixed = new Mapping[entries.size()];
+			int chunkSize = executor != null ? Math.max(MIN_PARALLEL_CHUNK_MAPPINGS, fixed.length / (getParallelism(executor) * 4) + 1) : fixed.length;
+
+			if (chunkSize >= fixed.length) {
+				for (int i = 0; i < fixed.length; i++) {
+					fixed[i] = descFixer.apply(entries.get(i).getKey());
+				}
+			} else {
+				List<CompletableFuture<?>> futures = new ArrayList<>();
+
+				for (int start = 0; start < fixed.length; start += chunkSize) {
+					int from = start;
+					int to = Math.min(start + chunkSize, fixed.length);
+
+					futures.add(CompletableFuture.runAsync(() -> {
+						for (int i = from; i < to; i++) {
+							fixed[i] = descFixer.apply(entries.get(i).getKey());
+						}
+					}, executor));
+				}
+
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+			}
+
+			for (int i = 0; i < fixed.length; i++) {
+				consumer.accept(fixed[i], entries.get(i).getValue());
+			}
 		}
+
+		private final int namespaceCount;
+		private final int nsA;
+		private final int nsB;
+		private boolean inHeader;
+		boolean escapedNames;
+		BiConsumer<String, String> classMappingConsumer; // immediate class consumer for sequential parsing
+
+		final Map<String, String> classes = new LinkedHashMap<>();
+		private final Map<String, String> obfFrom;
+		private final Map<Mapping, String> methods = new HashMap<>();
+		private final Map<Mapping, String> fields = new HashMap<>();
+		private final Map<Mapping, String[]> locals = new HashMap<>();
 	}
 
 	private static String[] splitAtTab(String s, int offset, int partCountHint) {
@@ -487,6 +732,8 @@ public final class TinyUtils {
 		return ret.toString();
 	}
 
+	private static final int MIN_PARALLEL_CHUNK_CHARS = 1 << 16;
+	private static final int MIN_PARALLEL_CHUNK_MAPPINGS = 1024;
 	private static final String toEscape = "\\\n\r\0\t";
 	private static final String escaped = "\\nr0t";
 }
@@ -0,0 +1,738 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.Arrays;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Finds the methods of an input class that remapping leaves unchanged, so the class writer can copy them verbatim, or
+ * whether the whole class stays unchanged.
+ *
+ * <p>This works on the raw class file instead of visiting it. Every constant pool entry the code references is checked
+ * against the remapper once, the code itself is only scanned for those references. Anything not handled here, like
+ * type annotations or invokedynamic instructions, is conservatively treated as changed.
+ */
+final class UnchangedMethodFinder {
+	UnchangedMethodFinder(ClassReader reader, AsmRemapper remapper, boolean skipLocalMapping, boolean renameInvalidLocals) {
+		this.reader = reader;
+		this.remapper = remapper;
+		this.skipLocalMapping = skipLocalMapping;
+		this.renameInvalidLocals = renameInvalidLocals;
+		this.owner = reader.getClassName();
+		this.buffer = new char[reader.getMaxStringLength()];
+		this.entryStates = new byte[reader.getItemCount()];
+	}
+
+	/**
+	 * @return whether each method, in class file order, is unchanged by remapping, or null if none is
+	 */
+	boolean[] find() {
+		int offset = reader.header + 6;
+		offset += 2 + reader.readUnsignedShort(offset) * 2; // interfaces
+
+		int fieldCount = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < fieldCount; i++) {
+			offset = skipAttributes(offset + 6);
+		}
+
+		boolean[] ret = new boolean[reader.readUnsignedShort(offset)];
+		boolean anyUnchanged = false;
+		offset += 2;
+
+		for (int i = 0; i < ret.length; i++) {
+			if (isMethodUnchanged(offset, false)) {
+				ret[i] = true;
+				anyUnchanged = true;
+			}
+
+			offset = skipAttributes(offset + 6);
+		}
+
+		return anyUnchanged ? ret : null;
+	}
+
+	/**
+	 * Determine whether remapping leaves the whole class unchanged, allowing to output its original bytes.
+	 *
+	 * <p>Unlike {@link #find()} this also checks the class, field and method headers and the class attributes.
+	 */
+	boolean isClassUnchanged() {
+		int offset = reader.header + 2;
+		if (!isEntryUnchanged(reader.readUnsignedShort(offset))) return false; // this class
+
+		int superIndex = reader.readUnsignedShort(offset + 2);
+		if (superIndex != 0 && !isEntryUnchanged(superIndex)) return false;
+
+		offset = areClassesUnchanged(offset + 4);
+		if (offset < 0) return false; // interfaces
+
+		int fieldCount = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < fieldCount; i++) {
+			String name = reader.readUTF8(offset + 2, buffer);
+			String desc = reader.readUTF8(offset + 4, buffer);
+			if (!remapper.mapFieldName(owner, name, desc).equals(name) || !isDescUnchanged(offset + 4)) return false;
+
+			int attributeCount = reader.readUnsignedShort(offset + 6);
+			offset += 8;
+
+			for (int j = 0; j < attributeCount; j++) {
+				String attribute = reader.readUTF8(offset, buffer);
+				int length = reader.readInt(offset + 2);
+				offset += 6;
+
+				switch (attribute) {
+				case "ConstantValue": // numbers or strings, which aren't remapped
+				case "Deprecated":
+				case "Synthetic":
+					break;
+				case "Signature":
+					if (!isSignatureUnchanged(offset, true)) return false;
+					break;
+				case "RuntimeVisibleAnnotations":
+				case "RuntimeInvisibleAnnotations":
+					if (!areAnnotationsUnchanged(offset)) return false;
+					break;
+				default:
+					return false;
+				}
+
+				offset += length;
+			}
+		}
+
+		int methodCount = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < methodCount; i++) {
+			if (!isMethodUnchanged(offset, true)) return false;
+			offset = skipAttributes(offset + 6);
+		}
+
+		int attributeCount = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < attributeCount; i++) {
+			String attribute = reader.readUTF8(offset, buffer);
+			int length = reader.readInt(offset + 2);
+			offset += 6;
+
+			switch (attribute) {
+			case "SourceFile":
+			case "SourceDebugExtension":
+			case "Deprecated":
+			case "Synthetic":
+			case "BootstrapMethods": // only used by invokedynamic, which is always changed, or checked dynamic constants
+				break;
+			case "Signature":
+				if (!isSignatureUnchanged(offset, false)) return false;
+				break;
+			case "InnerClasses":
+				if (!areInnerClassesUnchanged(offset)) return false;
+				break;
+			case "EnclosingMethod":
+				if (!isEnclosingMethodUnchanged(offset)) return false;
+				break;
+			case "NestHost":
+				if (!isEntryUnchanged(reader.readUnsignedShort(offset))) return false;
+				break;
+			case "NestMembers":
+			case "PermittedSubclasses":
+				if (areClassesUnchanged(offset) < 0) return false;
+				break;
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations":
+				if (!areAnnotationsUnchanged(offset)) return false;
+				break;
+			default:
+				return false;
+			}
+
+			offset += length;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param checkHeader whether to also check the parts the class writer compares itself before copying a method
+	 */
+	private boolean isMethodUnchanged(int offset, boolean checkHeader) {
+		int access = reader.readUnsignedShort(offset);
+		String name = reader.readUTF8(offset + 2, buffer);
+		String desc = reader.readUTF8(offset + 4, buffer);
+		int attributeCount = reader.readUnsignedShort(offset + 6);
+		hasLocals = false;
+		offset += 8;
+
+		if (checkHeader
+				&& (!remapper.mapMethodName(owner, name, desc).equals(name) || !remapper.mapMethodDesc(desc).equals(desc))) {
+			return false;
+		}
+
+		for (int i = 0; i < attributeCount; i++) {
+			String attribute = reader.readUTF8(offset, buffer);
+			int length = reader.readInt(offset + 2);
+			offset += 6;
+
+			switch (attribute) {
+			case "Code":
+				if (!isCodeUnchanged(offset)) return false;
+				break;
+			case "MethodParameters":
+				hasLocals = true;
+				break;
+			case "Exceptions": // remapped with the method header, the writer only copies the method if they stay the same
+				if (checkHeader && areClassesUnchanged(offset) < 0) return false;
+				break;
+			case "Signature":
+				if (checkHeader && !isSignatureUnchanged(offset, false)) return false;
+				break;
+			case "Deprecated":
+			case "Synthetic":
+				break;
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations":
+				if (!areAnnotationsUnchanged(offset)) return false;
+				break;
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations":
+				if (!areParameterAnnotationsUnchanged(offset)) return false;
+				break;
+			case "AnnotationDefault":
+				if (checkElementValue(offset) < 0) return false;
+				break;
+			default:
+				return false;
+			}
+
+			offset += length;
+		}
+
+		return areLocalsUnchanged(access, owner, name, desc);
+	}
+
+	private int skipAttributes(int offset) {
+		int count = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < count; i++) {
+			offset += 6 + reader.readInt(offset + 2);
+		}
+
+		return offset;
+	}
+
+	private boolean isCodeUnchanged(int offset) {
+		int codeStart = offset + 8;
+		int codeEnd = codeStart + reader.readInt(offset + 4);
+		int pos = codeStart;
+
+		while (pos < codeEnd) {
+			int opcode = reader.readByte(pos);
+
+			switch (opcode) {
+			case Opcodes.TABLESWITCH: {
+				pos += 4 - ((pos - codeStart) & 3); // opcode + padding
+				int low = reader.readInt(pos + 4);
+				int high = reader.readInt(pos + 8);
+				pos += 12 + (high - low + 1) * 4;
+				continue;
+			}
+			case Opcodes.LOOKUPSWITCH:
+				pos += 4 - ((pos - codeStart) & 3);
+				pos += 8 + reader.readInt(pos + 4) * 8;
+				continue;
+			case WIDE:
+				pos += reader.readByte(pos + 1) == Opcodes.IINC ? 6 : 4;
+				continue;
+			case Opcodes.INVOKEDYNAMIC: // lambda names depend on the bootstrap method arguments
+				return false;
+			case Opcodes.LDC:
+				if (!isEntryUnchanged(reader.readByte(pos + 1))) return false;
+				break;
+			case LDC_W:
+			case LDC2_W:
+			case Opcodes.GETSTATIC:
+			case Opcodes.PUTSTATIC:
+			case Opcodes.GETFIELD:
+			case Opcodes.PUTFIELD:
+			case Opcodes.INVOKEVIRTUAL:
+			case Opcodes.INVOKESPECIAL:
+			case Opcodes.INVOKESTATIC:
+			case Opcodes.INVOKEINTERFACE:
+			case Opcodes.NEW:
+			case Opcodes.ANEWARRAY:
+			case Opcodes.CHECKCAST:
+			case Opcodes.INSTANCEOF:
+			case Opcodes.MULTIANEWARRAY:
+				if (!isEntryUnchanged(reader.readUnsignedShort(pos + 1))) return false;
+				break;
+			}
+
+			int length = INSN_LENGTHS[opcode];
+			if (length == 0) return false; // invalid opcode
+			pos += length;
+		}
+
+		pos = codeEnd;
+
+		for (int i = 0, count = reader.readUnsignedShort(pos); i < count; i++) { // exception table
+			int catchType = reader.readUnsignedShort(pos + 8 + i * 8);
+			if (catchType != 0 && !isEntryUnchanged(catchType)) return false;
+		}
+
+		pos += 2 + reader.readUnsignedShort(pos) * 8;
+
+		int attributeCount = reader.readUnsignedShort(pos);
+		pos += 2;
+
+		for (int i = 0; i < attributeCount; i++) {
+			String attribute = reader.readUTF8(pos, buffer);
+			int start = pos + 6;
+			pos = start + reader.readInt(pos + 2);
+
+			switch (attribute) {
+			case "LineNumberTable":
+				break;
+			case "LocalVariableTable":
+				hasLocals = true;
+
+				for (int j = 0, lvCount = reader.readUnsignedShort(start); j < lvCount; j++) {
+					if (!isDescUnchanged(start + 8 + j * 10)) return false;
+				}
+
+				break;
+			case "LocalVariableTypeTable":
+				for (int j = 0, lvCount = reader.readUnsignedShort(start); j < lvCount; j++) {
+					if (!isSignatureUnchanged(start + 8 + j * 10, true)) return false;
+				}
+
+				break;
+			case "StackMapTable":
+				if (!areFramesUnchanged(start)) return false;
+				break;
+			default:
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param offset offset of a class count followed by the class constant pool indices
+	 * @return the offset after the classes, or -1 if any of them changes
+	 */
+	private int areClassesUnchanged(int offset) {
+		int count = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < count; i++) {
+			if (!isEntryUnchanged(reader.readUnsignedShort(offset))) return -1;
+			offset += 2;
+		}
+
+		return offset;
+	}
+
+	private boolean areInnerClassesUnchanged(int offset) {
+		int count = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < count; i++) {
+			int outerIndex = reader.readUnsignedShort(offset + 2);
+
+			if (!isEntryUnchanged(reader.readUnsignedShort(offset))
+					|| outerIndex != 0 && !isEntryUnchanged(outerIndex)) {
+				return false;
+			}
+
+			if (reader.readUnsignedShort(offset + 4) != 0) { // the inner name gets derived from the mapped class name
+				String name = reader.readClass(offset, buffer);
+				String outerName = outerIndex != 0 ? reader.readClass(offset + 2, buffer) : null;
+				String innerName = reader.readUTF8(offset + 4, buffer);
+				if (!remapper.mapInnerClassName(name, outerName, innerName).equals(innerName)) return false;
+			}
+
+			offset += 8;
+		}
+
+		return true;
+	}
+
+	private boolean isEnclosingMethodUnchanged(int offset) {
+		if (!isEntryUnchanged(reader.readUnsignedShort(offset))) return false;
+		if (reader.readUnsignedShort(offset + 2) == 0) return true; // not enclosed by a method
+
+		String owner = reader.readClass(offset, buffer);
+		int nameAndType = reader.getItem(reader.readUnsignedShort(offset + 2));
+		String name = reader.readUTF8(nameAndType, buffer);
+		String desc = reader.readUTF8(nameAndType + 2, buffer);
+
+		return remapper.mapMethodName(owner, name, desc).equals(name) && remapper.mapMethodDesc(desc).equals(desc);
+	}
+
+	/**
+	 * @param offset offset of the annotation count
+	 */
+	private boolean areAnnotationsUnchanged(int offset) {
+		int count = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < count; i++) {
+			offset = checkAnnotation(offset);
+			if (offset < 0) return false;
+		}
+
+		return true;
+	}
+
+	private boolean areParameterAnnotationsUnchanged(int offset) {
+		int count = reader.readByte(offset);
+		offset++;
+
+		for (int i = 0; i < count; i++) {
+			int annotationCount = reader.readUnsignedShort(offset);
+			offset += 2;
+
+			for (int j = 0; j < annotationCount; j++) {
+				offset = checkAnnotation(offset);
+				if (offset < 0) return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check an annotation the same way AsmAnnotationRemapper remaps it.
+	 *
+	 * @return the offset after the annotation, or -1 if it changes
+	 */
+	private int checkAnnotation(int offset) {
+		if (!isDescUnchanged(offset)) return -1;
+
+		String desc = reader.readUTF8(offset, buffer);
+		int count = reader.readUnsignedShort(offset + 2);
+		offset += 4;
+
+		for (int i = 0; i < count; i++) {
+			String name = reader.readUTF8(offset, buffer);
+			if (!remapper.mapAnnotationAttributeName(desc, name, getElementValueDesc(offset + 2)).equals(name)) return -1;
+
+			offset = checkElementValue(offset + 2);
+			if (offset < 0) return -1;
+		}
+
+		return offset;
+	}
+
+	/**
+	 * @return the offset after the element value, or -1 if it changes
+	 */
+	private int checkElementValue(int offset) {
+		switch (reader.readByte(offset)) {
+		case 'e': {
+			if (!isDescUnchanged(offset + 1)) return -1;
+
+			String desc = reader.readUTF8(offset + 1, buffer);
+			String name = reader.readUTF8(offset + 3, buffer);
+
+			return remapper.mapFieldName(Type.getType(desc).getInternalName(), name, desc).equals(name) ? offset + 5 : -1;
+		}
+		case 'c':
+			return isDescUnchanged(offset + 1) ? offset + 3 : -1;
+		case '@':
+			return checkAnnotation(offset + 1);
+		case '[': {
+			int count = reader.readUnsignedShort(offset + 1);
+			offset += 3;
+
+			for (int i = 0; i < count; i++) {
+				offset = checkElementValue(offset);
+				if (offset < 0) return -1;
+			}
+
+			return offset;
+		}
+		default: // numbers or strings
+			return offset + 3;
+		}
+	}
+
+	/**
+	 * @return the descriptor AsmAnnotationRemapper derives from an element value to map its name, null for empty arrays
+	 */
+	private String getElementValueDesc(int offset) {
+		int tag = reader.readByte(offset);
+
+		switch (tag) {
+		case 's':
+			return "Ljava/lang/String;";
+		case 'e':
+		case 'c':
+		case '@':
+			return reader.readUTF8(offset + 1, buffer);
+		case '[': {
+			if (reader.readUnsignedShort(offset + 1) == 0) return null;
+
+			String desc = getElementValueDesc(offset + 3);
+
+			return desc != null ? "[".concat(desc) : null;
+		}
+		default:
+			return String.valueOf((char) tag);
+		}
+	}
+
+	private boolean areFramesUnchanged(int offset) {
+		int count = reader.readUnsignedShort(offset);
+		offset += 2;
+
+		for (int i = 0; i < count; i++) {
+			int type = reader.readByte(offset++);
+			int types;
+
+			if (type < 64) { // same
+				types = 0;
+			} else if (type < 128) { // same locals, 1 stack item
+				types = 1;
+			} else if (type < 247) { // reserved
+				return false;
+			} else if (type == 247) { // same locals, 1 stack item extended
+				offset += 2;
+				types = 1;
+			} else if (type < 255) { // chop, same extended or append
+				offset += 2;
+				types = Math.max(type - 251, 0);
+			} else { // full
+				offset = checkVerificationTypes(offset + 4, reader.readUnsignedShort(offset + 2)); // locals
+				if (offset < 0) return false;
+				types = reader.readUnsignedShort(offset); // stack
+				offset += 2;
+			}
+
+			offset = checkVerificationTypes(offset, types);
+			if (offset < 0) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the offset after the verification types, or -1 if any of them changes
+	 */
+	private int checkVerificationTypes(int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			int tag = reader.readByte(offset);
+
+			if (tag == ITEM_OBJECT) {
+				if (!isEntryUnchanged(reader.readUnsignedShort(offset + 1))) return -1;
+				offset += 3;
+			} else if (tag == ITEM_UNINITIALIZED) {
+				offset += 3;
+			} else {
+				offset++;
+			}
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Determine whether AsmMethodRemapper's local processing leaves a method without any local variable table or
+	 * parameters unchanged, it may add them from the mappings or generated names.
+	 */
+	private boolean areLocalsUnchanged(int access, String owner, String name, String desc) {
+		if (skipLocalMapping && !renameInvalidLocals) return true; // no local processing
+		if (hasLocals) return false;
+		if (skipLocalMapping) return true; // renaming invalid locals only processes existing ones
+
+		Type[] argTypes = Type.getArgumentTypes(desc);
+		if (argTypes.length == 0) return true;
+		if (renameInvalidLocals) return false; // missing names get generated
+
+		int lvIndex = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+
+		for (Type type : argTypes) {
+			if (remapper.mapMethodArg(owner, name, desc, lvIndex, null) != null) return false;
+			lvIndex += type.getSize();
+		}
+
+		return true;
+	}
+
+	private boolean isEntryUnchanged(int index) {
+		byte state = entryStates[index];
+
+		if (state == STATE_UNKNOWN) {
+			state = computeEntryState(index);
+			entryStates[index] = state;
+		}
+
+		return state == STATE_UNCHANGED;
+	}
+
+	private byte computeEntryState(int index) {
+		int offset = reader.getItem(index);
+		boolean unchanged;
+
+		switch (reader.readByte(offset - 1)) {
+		case CONSTANT_CLASS: {
+			String name = reader.readUTF8(offset, buffer);
+			unchanged = remapper.mapType(name).equals(name);
+			break;
+		}
+		case CONSTANT_FIELDREF:
+		case CONSTANT_METHODREF:
+		case CONSTANT_INTERFACE_METHODREF: {
+			if (!isEntryUnchanged(reader.readUnsignedShort(offset))) return STATE_CHANGED;
+
+			String owner = reader.readClass(offset, buffer);
+			int nameAndType = reader.getItem(reader.readUnsignedShort(offset + 2));
+			String name = reader.readUTF8(nameAndType, buffer);
+			String desc = reader.readUTF8(nameAndType + 2, buffer);
+
+			if (reader.readByte(offset - 1) == CONSTANT_FIELDREF) {
+				unchanged = remapper.mapFieldName(owner, name, desc).equals(name) && remapper.mapDesc(desc).equals(desc);
+			} else {
+				unchanged = remapper.mapMethodName(owner, name, desc).equals(name) && remapper.mapMethodDesc(desc).equals(desc);
+			}
+
+			break;
+		}
+		case CONSTANT_INTEGER:
+		case CONSTANT_FLOAT:
+		case CONSTANT_LONG:
+		case CONSTANT_DOUBLE:
+		case CONSTANT_STRING:
+			unchanged = true;
+			break;
+		case CONSTANT_METHOD_HANDLE:
+		case CONSTANT_METHOD_TYPE:
+		case CONSTANT_DYNAMIC: {
+			Object value = reader.readConst(index, buffer);
+			unchanged = remapper.mapValue(value).equals(value);
+			break;
+		}
+		default:
+			unchanged = false;
+		}
+
+		return unchanged ? STATE_UNCHANGED : STATE_CHANGED;
+	}
+
+	/**
+	 * @param offset offset of the descriptor's constant pool index
+	 */
+	private boolean isDescUnchanged(int offset) {
+		int index = reader.readUnsignedShort(offset);
+		byte state = entryStates[index];
+
+		if (state == STATE_UNKNOWN) {
+			String desc = reader.readUTF8(offset, buffer);
+			state = remapper.mapDesc(desc).equals(desc) ? STATE_UNCHANGED : STATE_CHANGED;
+			entryStates[index] = state;
+		}
+
+		return state == STATE_UNCHANGED;
+	}
+
+	/**
+	 * @param offset offset of the signature's constant pool index
+	 */
+	private boolean isSignatureUnchanged(int offset, boolean typeSignature) {
+		String signature = reader.readUTF8(offset, buffer);
+
+		return remapper.mapSignature(signature, typeSignature).equals(signature);
+	}
+
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+
+	private static final int LDC_W = 19;
+	private static final int LDC2_W = 20;
+	private static final int WIDE = 196;
+	private static final int GOTO_W = 200;
+	private static final int JSR_W = 201;
+	private static final int ITEM_OBJECT = 7;
+	private static final int ITEM_UNINITIALIZED = 8;
+
+	private static final byte STATE_UNKNOWN = 0;
+	private static final byte STATE_UNCHANGED = 1;
+	private static final byte STATE_CHANGED = 2;
+
+	/**
+	 * Instruction lengths including the opcode, 0 for the variable length and invalid ones.
+	 */
+	private static final byte[] INSN_LENGTHS = new byte[256];
+
+	static {
+		Arrays.fill(INSN_LENGTHS, 0, 202, (byte) 1);
+
+		for (int opcode : new int[] { Opcodes.BIPUSH, Opcodes.LDC, Opcodes.NEWARRAY, Opcodes.RET }) INSN_LENGTHS[opcode] = 2;
+		for (int opcode = Opcodes.ILOAD; opcode <= Opcodes.ALOAD; opcode++) INSN_LENGTHS[opcode] = 2;
+		for (int opcode = Opcodes.ISTORE; opcode <= Opcodes.ASTORE; opcode++) INSN_LENGTHS[opcode] = 2;
+
+		for (int opcode : new int[] { Opcodes.SIPUSH, LDC_W, LDC2_W, Opcodes.IINC, Opcodes.NEW, Opcodes.ANEWARRAY,
+				Opcodes.CHECKCAST, Opcodes.INSTANCEOF, Opcodes.IFNULL, Opcodes.IFNONNULL }) {
+			INSN_LENGTHS[opcode] = 3;
+		}
+
+		for (int opcode = Opcodes.IFEQ; opcode <= Opcodes.JSR; opcode++) INSN_LENGTHS[opcode] = 3;
+		for (int opcode = Opcodes.GETSTATIC; opcode <= Opcodes.INVOKESTATIC; opcode++) INSN_LENGTHS[opcode] = 3;
+
+		INSN_LENGTHS[Opcodes.MULTIANEWARRAY] = 4;
+		INSN_LENGTHS[Opcodes.INVOKEINTERFACE] = 5;
+		INSN_LENGTHS[Opcodes.INVOKEDYNAMIC] = 5;
+		INSN_LENGTHS[GOTO_W] = 5;
+		INSN_LENGTHS[JSR_W] = 5;
+
+		INSN_LENGTHS[Opcodes.TABLESWITCH] = 0;
+		INSN_LENGTHS[Opcodes.LOOKUPSWITCH] = 0;
+		INSN_LENGTHS[WIDE] = 0;
+	}
+
+	private final ClassReader reader;
+	private final AsmRemapper remapper;
+	private final boolean skipLocalMapping;
+	private final boolean renameInvalidLocals;
+	private final String owner;
+	private final char[] buffer;
+	private final byte[] entryStates;
+	private boolean hasLocals;
+}
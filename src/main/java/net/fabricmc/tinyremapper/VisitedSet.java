@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import java.util.Arrays;
+
+/**
+ * Set of classes keyed by their {@link ClassInstance#ordinal} for tracking which classes a propagation already visited.
+ *
+ * <p>Membership is recorded by stamping the class' slot with the current epoch, clearing only advances the epoch. An
+ * instance is meant to be reused by a single thread for many propagations without any further allocation.
+ */
+final class VisitedSet {
+	boolean add(ClassInstance cls) {
+		int ordinal = cls.ordinal;
+
+		if (ordinal >= stamps.length) {
+			stamps = Arrays.copyOf(stamps, Math.max(ordinal + 1, stamps.length * 2));
+		}
+
+		if (stamps[ordinal] == epoch) return false;
+
+		stamps[ordinal] = epoch;
+
+		return true;
+	}
+
+	boolean contains(ClassInstance cls) {
+		int ordinal = cls.ordinal;
+
+		return ordinal < stamps.length && stamps[ordinal] == epoch;
+	}
+
+	void clear() {
+		if (++epoch == 0) { // wrapped around, old stamps could match again
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Get an empty set for a propagation started while the one using this set is still in progress.
+	 *
+	 * <p>The returned set is owned by this set and gets cleared by the next invocation.
+	 */
+	VisitedSet nested() {
+		if (nested == null) {
+			nested = new VisitedSet();
+		} else {
+			nested.clear();
+		}
+
+		return nested;
+	}
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] stamps = new int[INITIAL_CAPACITY];
+	private int epoch = 1;
+	private VisitedSet nested;
+}
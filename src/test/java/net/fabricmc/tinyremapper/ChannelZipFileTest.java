@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChannelZipFileTest {
+	@Test
+	public void storedAndDeflated() throws IOException {
+		Map<String, byte[]> contents = new LinkedHashMap<>();
+		contents.put("a/", new byte[0]);
+		contents.put("a/B.class", String.join("", Collections.nCopies(200, "compressible data ")).getBytes(StandardCharsets.UTF_8));
+		contents.put("a/C.class", randomBytes(100_000));
+		contents.put("META-INF/versions/9/a/B.class", new byte[0]);
+		contents.put("ä.txt", "x".getBytes(StandardCharsets.UTF_8));
+
+		Path file = tmpDir.resolve("test.jar");
+
+		try (OutputStream os = Files.newOutputStream(file)) {
+			os.write("prefix data before the archive".getBytes(StandardCharsets.UTF_8));
+
+			ZipOutputStream zos = new ZipOutputStream(os);
+			int i = 0;
+
+			for (Map.Entry<String, byte[]> e : contents.entrySet()) {
+				ZipEntry entry = new ZipEntry(e.getKey());
+
+				if (i++ % 2 == 0) {
+					CRC32 crc = new CRC32();
+					crc.update(e.getValue());
+
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(e.getValue().length);
+					entry.setCrc(crc.getValue());
+				}
+
+				zos.putNextEntry(entry);
+				zos.write(e.getValue());
+				zos.closeEntry();
+			}
+
+			zos.finish();
+		}
+
+		ChannelZipFile zip = ChannelZipFile.open(file);
+		assertNotNull(zip);
+		assertEquals(contents.size(), zip.getEntries().size());
+
+		byte[] buffer = new byte[16];
+
+		for (ChannelZipFile.Entry entry : zip.getEntries()) {
+			byte[] expected = contents.get(entry.getName());
+			assertNotNull(expected, entry.getName());
+			assertEquals(entry.getName().endsWith("/"), entry.isDirectory());
+			assertArrayEquals(expected, zip.read(entry));
+
+			buffer = zip.read(entry, buffer);
+			assertTrue(buffer.length >= expected.length);
+			assertArrayEquals(expected, Arrays.copyOf(buffer, entry.getSize()));
+		}
+
+		zip.close();
+		assertThrows(IOException.class, () -> zip.read(zip.getEntries().get(1)));
+
+		Files.delete(file);
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] ret = new byte[size];
+		new Random(42).nextBytes(ret);
+
+		return ret;
+	}
+
+	@TempDir
+	static Path tmpDir;
+}
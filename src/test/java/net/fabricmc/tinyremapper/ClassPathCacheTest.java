@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClassPathCacheTest {
+	private static final String MRJ1_INPUT_PATH = "/integration/mrj1/input.jar";
+	private static final int LOC_SIZE = 30;
+
+	@TempDir
+	static Path folder;
+
+	@BeforeAll
+	public static void setup() throws IOException {
+		TestUtil.folder = folder;
+		TestUtil.copyFile(ClassPathCacheTest.class, MRJ1_INPUT_PATH);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		Path cacheDir = folder.resolve("cache");
+		Path classPath = folder.resolve("roundTrip.jar");
+		Files.copy(TestUtil.input(MRJ1_INPUT_PATH), classPath);
+
+		Map<String, String> uncached = readClassPath(null, classPath);
+		assertFalse(uncached.isEmpty());
+
+		Map<String, String> first = readClassPath(cacheDir, classPath);
+
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			assertEquals(1, files.count());
+		}
+
+		// break the class data without touching the central directory, size or mtime, only a cache hit can still succeed
+		FileTime mtime = Files.getLastModifiedTime(classPath);
+		byte[] data = Files.readAllBytes(classPath);
+		int pos = indexOf(data, "com/github/logicf/App.class".getBytes(StandardCharsets.UTF_8)) - LOC_SIZE;
+		assertEquals(0x04034b50, ByteBuffer.wrap(data, pos, 4).order(ByteOrder.LITTLE_ENDIAN).getInt());
+		Arrays.fill(data, pos, pos + 4, (byte) 0);
+		Files.write(classPath, data);
+		Files.setLastModifiedTime(classPath, mtime);
+
+		assertThrows(RuntimeException.class, () -> readClassPath(null, classPath));
+
+		Map<String, String> second = readClassPath(cacheDir, classPath);
+
+		assertEquals(uncached, first);
+		assertEquals(uncached, second);
+	}
+
+	@Test
+	public void invalidation() throws IOException {
+		Path cacheDir = folder.resolve("cache-invalidation");
+		Path classPath = folder.resolve("invalidation.jar");
+		Files.copy(TestUtil.input(MRJ1_INPUT_PATH), classPath);
+
+		Map<String, String> original = readClassPath(cacheDir, classPath);
+		assertTrue(original.containsKey("com/github/logicf/Greeting"));
+
+		// replace the archive with one lacking the unversioned Greeting class
+		FileTime mtime = Files.getLastModifiedTime(classPath);
+		Path modified = folder.resolve("invalidation-modified.jar");
+
+		try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(classPath));
+				ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(modified))) {
+			ZipEntry entry;
+
+			while ((entry = zis.getNextEntry()) != null) {
+				if (entry.getName().equals("com/github/logicf/Greeting.class")) continue;
+
+				zos.putNextEntry(new ZipEntry(entry.getName()));
+				zos.write(readAll(zis));
+				zos.closeEntry();
+			}
+		}
+
+		Files.move(modified, classPath, StandardCopyOption.REPLACE_EXISTING);
+		Files.setLastModifiedTime(classPath, FileTime.fromMillis(mtime.toMillis() + 10_000));
+
+		Map<String, String> expected = readClassPath(null, classPath);
+		assertFalse(expected.containsKey("com/github/logicf/Greeting"));
+		assertEquals(expected, readClassPath(cacheDir, classPath));
+
+		// the rebuilt entry has to be served from now on
+		assertEquals(expected, readClassPath(cacheDir, classPath));
+	}
+
+	private static int indexOf(byte[] data, byte[] pattern) {
+		outer: for (int i = 0; i <= data.length - pattern.length; i++) {
+			for (int j = 0; j < pattern.length; j++) {
+				if (data[i + j] != pattern[j]) continue outer;
+			}
+
+			return i;
+		}
+
+		throw new IllegalArgumentException("pattern not found");
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int len;
+
+		while ((len = is.read(buffer)) >= 0) {
+			os.write(buffer, 0, len);
+		}
+
+		return os.toByteArray();
+	}
+
+	private static Map<String, String> readClassPath(Path cacheDir, Path classPath) {
+		TinyRemapper.Builder builder = TinyRemapper.newRemapper();
+		if (cacheDir != null) builder.classPathCache(cacheDir);
+
+		TinyRemapper remapper = builder.build();
+
+		try {
+			remapper.readClassPath(classPath);
+
+			Map<String, String> ret = new TreeMap<>();
+
+			for (Map.Entry<String, ClassInstance> entry : remapper.readClasses.entrySet()) {
+				ClassInstance cls = entry.getValue();
+				assertTrue(!cls.isInput && cls.data == null);
+
+				List<String> members = new ArrayList<>();
+
+				for (MemberInstance member : cls.getMembers()) {
+					members.add(member.getIndex()+" "+member.getId()+" "+member.getAccess());
+				}
+
+				members.sort(null);
+
+				ret.put(entry.getKey(), String.format("%d %d %s %s %s %s %s",
+						cls.getMrjVersion(), cls.getAccess(), cls.getName(), cls.getSignature(), cls.getSuperName(),
+						cls.getInterfaceNames(), members));
+			}
+
+			return ret;
+		} finally {
+			remapper.finish();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompiledMappingsTest {
+	private static final String YARN_PATH = "/mapping/yarn-1.17+build.9-v2.tiny.gz";
+
+	@TempDir
+	static Path folder;
+
+	@BeforeAll
+	public static void setup() throws IOException {
+		TestUtil.folder = folder;
+		TestUtil.copyFile(CompiledMappingsTest.class, YARN_PATH);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		IMappingProvider text = TinyUtils.createTinyMappingProvider(TestUtil.input(YARN_PATH), "intermediary", "named");
+		Path compiled = folder.resolve("yarn.bin");
+		TinyUtils.compileMappings(text, "intermediary", "named", compiled);
+
+		Tables expected = new Tables(text);
+		Tables actual = new Tables(TinyUtils.createCompiledMappingProvider(compiled, "intermediary", "named"));
+
+		assertFalse(expected.methodMap.isEmpty());
+		assertFalse(expected.localMap.isEmpty());
+		assertEquals(expected.classMap, actual.classMap);
+		assertEquals(expected.fieldMap, actual.fieldMap);
+		assertEquals(expected.methodMap, actual.methodMap);
+		assertEquals(expected.localMap.keySet(), actual.localMap.keySet());
+
+		for (Map.Entry<String, String[]> entry : expected.localMap.entrySet()) {
+			assertArrayEquals(entry.getValue(), actual.localMap.get(entry.getKey()), entry.getKey());
+		}
+
+		assertThrows(RuntimeException.class, () -> new Tables(TinyUtils.createCompiledMappingProvider(compiled, "intermediary", "official")));
+	}
+
+	@Test
+	public void corruptFile() throws IOException {
+		IMappingProvider text = TinyUtils.createTinyMappingProvider(TestUtil.input(YARN_PATH), "intermediary", "named");
+		Path compiled = folder.resolve("yarn-corrupt.bin");
+		TinyUtils.compileMappings(text, "intermediary", "named", compiled);
+		byte[] data = Files.readAllBytes(compiled);
+
+		for (int length : new int[] { 0, 6, 12, data.length / 2, data.length - 1 }) {
+			Files.write(compiled, Arrays.copyOf(data, length));
+			assertLoadFails(compiled);
+		}
+
+		byte[] corrupt = data.clone();
+		Arrays.fill(corrupt, 8, 13, (byte) 0xff); // from namespace length
+		Files.write(compiled, corrupt);
+		assertLoadFails(compiled);
+	}
+
+	private static void assertLoadFails(Path compiled) {
+		RuntimeException e = assertThrows(RuntimeException.class, () -> new Tables(TinyUtils.createCompiledMappingProvider(compiled, "intermediary", "named")));
+		assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+	}
+
+	private static final class Tables {
+		Tables(IMappingProvider provider) {
+			provider.load(classMap, fieldMap, methodMap, localMap);
+		}
+
+		final Map<String, String> classMap = new HashMap<>();
+		final Map<String, String> fieldMap = new HashMap<>();
+		final Map<String, String> methodMap = new HashMap<>();
+		final Map<String, String[]> localMap = new HashMap<>();
+	}
+}
@@ -18,15 +18,38 @@
 
 package net.fabricmc.tinyremapper;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -34,13 +57,25 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.util.TraceClassVisitor;
 
 public class IntegrationTest1 {
 	private static final String MAPPING1_PATH = "/mapping/mapping1.tiny";
 	private static final String BASIC_INPUT_PATH = "/integration/basic/input.jar";
 	private static final String MRJ1_INPUT_PATH = "/integration/mrj1/input.jar";
 	private static final String MRJ2_INPUT_PATH = "/integration/mrj2/input.jar";
+	private static final String MEMBERS_MAPPING_PATH = "/mapping/members.tiny";
+	private static final String MEMBERS_BASE_INPUT_PATH = "/integration/members/base.jar";
+	private static final String MEMBERS_SUB_INPUT_PATH = "/integration/members/sub.jar";
+	private static final String MRJ_STATES_INPUT_PATH = "/integration/mrjstates/input.jar";
+	private static final String MRJ_COPIES_INPUT_PATH = "/integration/mrjcopies/input.jar";
+	private static final String MRJ_COPIES_MAPPING_PATH = "/mapping/mrjcopies.tiny";
+	private static final String MRJ_COPIES_CONFLICT_MAPPING_PATH = "/mapping/mrjcopies-conflict.tiny";
+	private static final String MRJ_ACCESS_INPUT_PATH = "/integration/mrjaccess/input.jar";
+	private static final String MRJ_ACCESS_MAPPING_PATH = "/mapping/mrjaccess.tiny";
 
 	@TempDir
 	static Path folder;
@@ -54,9 +89,126 @@ public class IntegrationTest1 {
 		TestUtil.copyFile(IntegrationTest1.class, BASIC_INPUT_PATH);
 		TestUtil.copyFile(IntegrationTest1.class, MRJ1_INPUT_PATH);
 		TestUtil.copyFile(IntegrationTest1.class, MRJ2_INPUT_PATH);
+
+		createMembersFixture();
+	}
+
+	/**
+	 * Create a small hierarchy with member mappings, split into the base types and a jar with the types extending
+	 * them, including a versioned copy.
+	 */
+	private static void createMembersFixture() throws IOException {
+		Map<String, byte[]> base = new LinkedHashMap<>();
+		base.put("m/Iface.class", createClass(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "m/Iface", "java/lang/Object", null, cv -> {
+			cv.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "run", "()V", null, null).visitEnd();
+		}));
+		base.put("m/Base.class", createClass(Opcodes.ACC_PUBLIC, "m/Base", "java/lang/Object", null, cv -> {
+			cv.visitField(Opcodes.ACC_PUBLIC, "value", "I", null, null).visitEnd();
+			addConstructor(cv, "java/lang/Object");
+			addMethod(cv, "get", "()I", mv -> {
+				mv.visitVarInsn(Opcodes.ALOAD, 0);
+				mv.visitFieldInsn(Opcodes.GETFIELD, "m/Base", "value", "I");
+				mv.visitInsn(Opcodes.IRETURN);
+			});
+			addMethod(cv, "run", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+		}));
+
+		Map<String, byte[]> sub = new LinkedHashMap<>();
+		byte[] impl = createClass(Opcodes.ACC_PUBLIC, "m/Impl", "m/Base", new String[] { "m/Iface" }, cv -> {
+			addConstructor(cv, "m/Base");
+			addMethod(cv, "get", "()I", mv -> {
+				mv.visitInsn(Opcodes.ICONST_1);
+				mv.visitInsn(Opcodes.IRETURN);
+			});
+			addMethod(cv, "run", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+		});
+		sub.put("m/Impl.class", impl);
+		sub.put("m/User.class", createClass(Opcodes.ACC_PUBLIC, "m/User", "java/lang/Object", null, cv -> {
+			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "use", "(Lm/Impl;)I", null, null);
+			mv.visitCode();
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, "m/Iface", "run", "()V", true);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "m/Impl", "get", "()I", false);
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitFieldInsn(Opcodes.GETFIELD, "m/Impl", "value", "I"); // resolved through the super class
+			mv.visitInsn(Opcodes.IADD);
+			mv.visitInsn(Opcodes.IRETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}));
+		sub.put("META-INF/versions/9/m/Impl.class", createClass(Opcodes.ACC_PUBLIC, "m/Impl", "m/Base", new String[] { "m/Iface" }, cv -> {
+			addConstructor(cv, "m/Base");
+			addMethod(cv, "run", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+			addMethod(cv, "extra", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+		}));
+
+		writeJar(TestUtil.input(MEMBERS_BASE_INPUT_PATH), base);
+		writeJar(TestUtil.input(MEMBERS_SUB_INPUT_PATH), sub);
+		writeMappings(MEMBERS_MAPPING_PATH,
+				"tiny\t2\t0\ta\tb",
+				"c\tm/Iface\tm/MappedIface",
+				"\tm\t()V\trun\texecute",
+				"c\tm/Base\tm/MappedBase",
+				"\tm\t()I\tget\tgetValue",
+				"\tm\t()V\trun\texecute",
+				"\tf\tI\tvalue\tmappedValue",
+				"c\tm/Impl\tm/MappedImpl",
+				"\tm\t()V\textra\tmappedExtra");
+	}
+
+	private static byte[] createClass(int access, String name, String superName, String[] interfaces, Consumer<ClassVisitor> body) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_8, access, name, null, superName, interfaces);
+		body.accept(cw);
+		cw.visitEnd();
+
+		return cw.toByteArray();
+	}
+
+	private static void addConstructor(ClassVisitor cv, String superName) {
+		addMethod(cv, "<init>", "()V", mv -> {
+			mv.visitVarInsn(Opcodes.ALOAD, 0);
+			mv.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+			mv.visitInsn(Opcodes.RETURN);
+		});
+	}
+
+	private static void addMethod(ClassVisitor cv, String name, String desc, Consumer<MethodVisitor> code) {
+		MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PUBLIC, name, desc, null, null);
+		mv.visitCode();
+		code.accept(mv);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void writeJar(Path file, Map<String, byte[]> entries) throws IOException {
+		Files.createDirectories(file.getParent());
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(file))) {
+			for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+				zos.putNextEntry(new ZipEntry(entry.getKey()));
+				zos.write(entry.getValue());
+				zos.closeEntry();
+			}
+		}
+	}
+
+	private static void writeMappings(String path, String... lines) throws IOException {
+		Path file = TestUtil.input(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
 	}
 
 	private TinyRemapper setupRemapper() {
+		return setupRemapperBuilder().build();
+	}
+
+	private TinyRemapper.Builder setupRemapperBuilder() {
+		return setupRemapperBuilder(MAPPING1_PATH);
+	}
+
+	private TinyRemapper.Builder setupRemapperBuilder(String mappingPath) {
 		// copy from Main.java
 		final boolean ignoreFieldDesc = false;
 		final boolean propagatePrivate = false;
@@ -75,7 +227,7 @@ public class IntegrationTest1 {
 		final String from = "a";
 		final String to = "b";
 
-		Path mappings = TestUtil.getFile(IntegrationTest1.MAPPING1_PATH).toPath();
+		Path mappings = TestUtil.getFile(mappingPath).toPath();
 
 		return TinyRemapper.newRemapper()
 				.withMappings(TinyUtils.createTinyMappingProvider(mappings, from, to))
@@ -90,8 +242,7 @@ public class IntegrationTest1 {
 				.rebuildSourceFilenames(rebuildSourceFilenames)
 				.skipLocalVariableMapping(skipLocalVariableMapping)
 				.renameInvalidLocals(renameInvalidLocals)
-				.threads(threads)
-				.build();
+				.threads(threads);
 	}
 
 	/**
@@ -272,6 +423,401 @@ public class IntegrationTest1 {
 		result.close();
 	}
 
+	/**
+	 * This tests routing the output of tagged inputs to per tag consumers in a single apply invocation.
+	 */
+	@Test
+	public void taggedOutputs() {
+		final TinyRemapper remapper = setupRemapper();
+		InputTag mrjTag = remapper.createInputTag();
+		InputTag unusedTag = remapper.createInputTag();
+		Map<String, byte[]> mrjOutput = new HashMap<>();
+		Map<String, byte[]> unusedOutput = new HashMap<>();
+		Map<String, byte[]> allOutput = new HashMap<>();
+		Map<InputTag, BiConsumer<String, byte[]>> outputs = new HashMap<>();
+		outputs.put(mrjTag, mrjOutput::put);
+		outputs.put(unusedTag, unusedOutput::put);
+		outputs.put(null, allOutput::put);
+
+		TinyRemapper other = setupRemapper();
+
+		try {
+			remapper.readInputs(mrjTag, TestUtil.input(MRJ1_INPUT_PATH));
+
+			remapper.apply(outputs);
+			// tags of other remappers are rejected
+			assertThrows(IllegalArgumentException.class, () -> remapper.apply(Collections.singletonMap(other.createInputTag(), (name, data) -> { })));
+		} finally {
+			remapper.finish();
+			other.finish();
+		}
+
+		assertTrue(mrjOutput.containsKey("com/github/logicf/Main"));
+		assertTrue(mrjOutput.containsKey("/META-INF/versions/9/com/github/logicf/Greeting"));
+		assertTrue(unusedOutput.isEmpty());
+		assertEquals(mrjOutput.keySet(), allOutput.keySet());
+	}
+
+	/**
+	 * This tests that copying the methods unaffected by remapping yields the same classes as remapping them.
+	 */
+	@Test
+	public void copyUnchangedMethods() throws IOException {
+		// local variable processing would touch every method with a local variable table
+		Map<String, byte[]> expected = remapMrj1(setupRemapperBuilder().skipLocalVariableMapping(true).build());
+		Map<String, byte[]> actual = remapMrj1(setupRemapperBuilder().skipLocalVariableMapping(true).copyUnchangedMethods(true).build());
+
+		assertEquals(expected.keySet(), actual.keySet());
+
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertEquals(toText(entry.getValue()), toText(actual.get(entry.getKey())), entry.getKey());
+		}
+
+		// Base.get reads the mapped field, the other methods don't reference anything mapped
+		TinyRemapper remapper = setupRemapperBuilder(MEMBERS_MAPPING_PATH).skipLocalVariableMapping(true).build();
+
+		try (FileSystem fs = FileSystems.newFileSystem(TestUtil.input(MEMBERS_BASE_INPUT_PATH), (ClassLoader) null)) {
+			remapper.readInputs(TestUtil.input(MEMBERS_BASE_INPUT_PATH));
+			AsmRemapper asmRemapper = (AsmRemapper) remapper.getEnvironment().getRemapper();
+			ClassReader reader = new ClassReader(Files.readAllBytes(fs.getPath("m/Base.class")));
+
+			// <init>, get, run
+			assertArrayEquals(new boolean[] { true, false, true }, new UnchangedMethodFinder(reader, asmRemapper, true, false).find());
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	@Test
+	public void copyUnchangedClasses() throws IOException {
+		Map<String, byte[]> expected = remapMrj1(setupRemapperBuilder().skipLocalVariableMapping(true).build());
+		Map<String, byte[]> actual = remapMrj1(setupRemapperBuilder().skipLocalVariableMapping(true).copyUnchangedClasses(true).build());
+
+		assertEquals(expected.keySet(), actual.keySet());
+
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertEquals(toText(entry.getValue()), toText(actual.get(entry.getKey())), entry.getKey());
+		}
+
+		// Greeting isn't affected by the mappings, so it is passed through as is
+		try (FileSystem fs = FileSystems.newFileSystem(TestUtil.input(MRJ1_INPUT_PATH), (ClassLoader) null)) {
+			for (String name : new String[] { "com/github/logicf/Greeting", "META-INF/versions/9/com/github/logicf/Greeting" }) {
+				byte[] input = Files.readAllBytes(fs.getPath(name + ".class"));
+				byte[] output = actual.get(name.startsWith("META-INF/") ? "/" + name : name);
+
+				assertNotNull(output, name);
+				assertTrue(Arrays.equals(input, output), name);
+			}
+		}
+	}
+
+	@Test
+	public void localsWithPostApplyVisitor() {
+		// the post apply visitor disallows deferring the parameters, so most methods get processed as a MethodNode
+		Map<String, byte[]> expected = remapMrj1(setupRemapperBuilder().renameInvalidLocals(true).build());
+		Map<String, byte[]> actual = remapMrj1(setupRemapperBuilder().renameInvalidLocals(true).extraPostApplyVisitor((cls, next) -> next).build());
+
+		assertEquals(expected.keySet(), actual.keySet());
+
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertEquals(toText(entry.getValue()), toText(actual.get(entry.getKey())), entry.getKey());
+		}
+
+		// User.use has no labels, so the added arg local variable needs labels spanning the whole code
+		Path[] members = { TestUtil.input(MEMBERS_BASE_INPUT_PATH), TestUtil.input(MEMBERS_SUB_INPUT_PATH) };
+		expected = remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).renameInvalidLocals(true).build(), members);
+		actual = remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).renameInvalidLocals(true).extraPostApplyVisitor((cls, next) -> next).build(), members);
+
+		assertEquals(expected.keySet(), actual.keySet());
+		assertTrue(toText(expected.get("m/User")).contains("LOCALVARIABLE"));
+
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertEquals(toText(entry.getValue()), toText(actual.get(entry.getKey())), entry.getKey());
+		}
+	}
+
+	/**
+	 * This tests that propagating only around the classes added after remapping yields the same result as
+	 * propagating everything again, for added sub classes as well as added parents.
+	 */
+	@Test
+	public void incrementalPropagation() {
+		Path base = TestUtil.input(MEMBERS_BASE_INPUT_PATH);
+		Path sub = TestUtil.input(MEMBERS_SUB_INPUT_PATH);
+		Map<String, byte[]> expected = remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).build(), base, sub);
+
+		assertTrue(toText(expected.get("m/MappedImpl")).contains("getValue()I"));
+		assertTrue(toText(expected.get("m/User")).contains("GETFIELD m/MappedImpl.mappedValue : I"));
+
+		for (Path[] order : new Path[][] { { base, sub }, { sub, base } }) {
+			TinyRemapper remapper = setupRemapperBuilder(MEMBERS_MAPPING_PATH).keepInputData(true).incrementalPropagation(true).build();
+			Map<String, byte[]> actual = new HashMap<>();
+
+			try {
+				remapper.readInputs(order[0]);
+				remapper.apply(actual::put);
+				remapper.readInputs(order[1]);
+				actual.clear();
+				remapper.apply(actual::put);
+			} finally {
+				remapper.finish();
+			}
+
+			assertSameOutput(expected, actual);
+		}
+	}
+
+	@Test
+	public void iterativePropagation() {
+		assertSameOutput(builder -> builder.iterativePropagation(true));
+	}
+
+	@Test
+	public void precomputeResolution() {
+		assertSameOutput(builder -> builder.precomputeResolution(true));
+	}
+
+	@Test
+	public void boundedResolveCache() {
+		assertSameOutput(builder -> builder.resolveCache(TinyRemapper.ResolveCachePolicy.PER_CLASS, 1));
+		assertSameOutput(builder -> builder.resolveCache(TinyRemapper.ResolveCachePolicy.GLOBAL, 1));
+	}
+
+	@Test
+	public void deduplicateStrings() {
+		assertSameOutput(builder -> builder.deduplicateStrings(true));
+	}
+
+	@Test
+	public void metricsListener() {
+		List<PhaseMetrics> metrics = Collections.synchronizedList(new ArrayList<>());
+		remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).metricsListener(metrics::add).build(),
+				TestUtil.input(MEMBERS_BASE_INPUT_PATH), TestUtil.input(MEMBERS_SUB_INPUT_PATH));
+
+		Set<PhaseMetrics.Phase> phases = EnumSet.noneOf(PhaseMetrics.Phase.class);
+		Set<Integer> mrjVersions = new HashSet<>();
+		long classes = 0, bytesRead = 0, bytesWritten = 0, resolves = 0;
+
+		for (PhaseMetrics m : metrics) {
+			phases.add(m.getPhase());
+			mrjVersions.add(m.getMrjVersion());
+			classes += m.getClassCount();
+			bytesRead += m.getBytesRead();
+			bytesWritten += m.getBytesWritten();
+			resolves += m.getResolveHits() + m.getResolveMisses();
+		}
+
+		assertTrue(phases.containsAll(EnumSet.of(PhaseMetrics.Phase.READ, PhaseMetrics.Phase.MERGE, PhaseMetrics.Phase.PROPAGATE, PhaseMetrics.Phase.APPLY)), phases.toString());
+		// the default state and the state for sub.jar's versioned Impl
+		assertTrue(mrjVersions.containsAll(Arrays.asList(ClassInstance.MRJ_DEFAULT, 9, PhaseMetrics.ALL_STATES)), mrjVersions.toString());
+		assertTrue(classes > 0);
+		assertTrue(bytesRead > 0);
+		assertTrue(bytesWritten > 0);
+		assertTrue(resolves > 0);
+	}
+
+	/**
+	 * This tests that processing multiple MRJ states concurrently yields the same result as processing them one at a
+	 * time with a single thread.
+	 */
+	@Test
+	public void concurrentMrjStates() throws IOException {
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+
+		for (int version : new int[] { 11, 15, 17, 21 }) { // not 9, sub.jar already has a version 9 Impl
+			classes.put("META-INF/versions/"+version+"/m/Impl.class", createClass(Opcodes.ACC_PUBLIC, "m/Impl", "m/Base", new String[] { "m/Iface" }, cv -> {
+				addConstructor(cv, "m/Base");
+				addMethod(cv, "run", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+				addMethod(cv, "extra", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+
+				if (version >= 17) {
+					addMethod(cv, "get", "()I", mv -> {
+						mv.visitInsn(Opcodes.ICONST_2);
+						mv.visitInsn(Opcodes.IRETURN);
+					});
+				}
+			}));
+			classes.put("META-INF/versions/"+version+"/m/User.class", createClass(Opcodes.ACC_PUBLIC, "m/User", "java/lang/Object", null, cv -> {
+				addMethod(cv, "use", "(Lm/Impl;)I", mv -> {
+					mv.visitVarInsn(Opcodes.ALOAD, 1);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "m/Impl", "extra", "()V", false);
+					mv.visitVarInsn(Opcodes.ALOAD, 1);
+					mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "m/Impl", "get", "()I", false);
+					mv.visitInsn(Opcodes.IRETURN);
+				});
+			}));
+		}
+
+		Path[] inputs = { TestUtil.input(MEMBERS_BASE_INPUT_PATH), TestUtil.input(MEMBERS_SUB_INPUT_PATH), TestUtil.input(MRJ_STATES_INPUT_PATH) };
+		writeJar(inputs[2], classes);
+
+		Map<String, byte[]> expected = remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).threads(1).build(), inputs);
+
+		assertTrue(toText(expected.get("/META-INF/versions/21/m/MappedImpl")).contains("getValue()I"));
+		assertTrue(toText(expected.get("/META-INF/versions/11/m/User")).contains("INVOKEVIRTUAL m/MappedImpl.mappedExtra ()V"));
+
+		for (int i = 0; i < 3; i++) {
+			assertSameOutput(expected, remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).threads(4).build(), inputs));
+		}
+	}
+
+	/**
+	 * This tests that the MRJ copies of a class keep their mapping results apart from the class they were copied from,
+	 * and that conflicts only present in a copy are still detected.
+	 */
+	@Test
+	public void mrjCopies() throws IOException {
+		Consumer<ClassVisitor> user = cv -> addMethod(cv, "use", "(Lm/Base;)I", mv -> {
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "m/Base", "get", "()I", false);
+			mv.visitInsn(Opcodes.IRETURN);
+		});
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		classes.put("m/Base.class", createClass(Opcodes.ACC_PUBLIC, "m/Base", "java/lang/Object", null, cv -> {
+			addConstructor(cv, "java/lang/Object");
+			addMethod(cv, "get", "()I", mv -> {
+				mv.visitInsn(Opcodes.ICONST_0);
+				mv.visitInsn(Opcodes.IRETURN);
+			});
+			addMethod(cv, "getValue", "()I", mv -> {
+				mv.visitInsn(Opcodes.ICONST_1);
+				mv.visitInsn(Opcodes.IRETURN);
+			});
+		}));
+		classes.put("m/User.class", createClass(Opcodes.ACC_PUBLIC, "m/User", "java/lang/Object", null, user));
+		// only the version 9 state has the sub class, whose mapping propagates to its copy of the base class
+		classes.put("META-INF/versions/9/m/Sub.class", createClass(Opcodes.ACC_PUBLIC, "m/Sub", "m/Base", null, cv -> {
+			addConstructor(cv, "m/Base");
+			addMethod(cv, "get", "()I", mv -> {
+				mv.visitInsn(Opcodes.ICONST_2);
+				mv.visitInsn(Opcodes.IRETURN);
+			});
+		}));
+		classes.put("META-INF/versions/9/m/User.class", createClass(Opcodes.ACC_PUBLIC, "m/User", "java/lang/Object", null, user));
+
+		Path input = TestUtil.input(MRJ_COPIES_INPUT_PATH);
+		writeJar(input, classes);
+		writeMappings(MRJ_COPIES_MAPPING_PATH, "tiny\t2\t0\ta\tb", "c\tm/Sub\tm/Sub", "\tm\t()I\tget\tfetch");
+		writeMappings(MRJ_COPIES_CONFLICT_MAPPING_PATH, "tiny\t2\t0\ta\tb", "c\tm/Sub\tm/Sub", "\tm\t()I\tget\tgetValue");
+
+		Map<String, byte[]> output = remap(setupRemapperBuilder(MRJ_COPIES_MAPPING_PATH).build(), input);
+
+		assertTrue(toText(output.get("/META-INF/versions/9/m/Sub")).contains("fetch()I"));
+		assertTrue(toText(output.get("/META-INF/versions/9/m/User")).contains("INVOKEVIRTUAL m/Base.fetch ()I"));
+		assertTrue(toText(output.get("m/User")).contains("INVOKEVIRTUAL m/Base.get ()I"));
+		assertTrue(toText(output.get("m/Base")).contains("get()I"));
+		assertFalse(toText(output.get("m/Base")).contains("fetch"));
+
+		RuntimeException e = assertThrows(RuntimeException.class, () -> remap(setupRemapperBuilder(MRJ_COPIES_CONFLICT_MAPPING_PATH).build(), input));
+		assertEquals("Unfixable conflicts", e.getMessage());
+	}
+
+	/**
+	 * This tests that package access fixes found for a class only accessed from a higher MRJ version still get applied
+	 * to it, and that the access fix pre-pass only checks the classes whose accesses may break.
+	 */
+	@Test
+	public void mrjAccessFixes() throws IOException {
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		classes.put("p/Target.class", createClass(0, "p/Target", "java/lang/Object", null, cv -> {
+			MethodVisitor mv = cv.visitMethod(Opcodes.ACC_STATIC, "m", "()V", null, null);
+			mv.visitCode();
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}));
+		classes.put("p/User.class", createClass(Opcodes.ACC_PUBLIC, "p/User", "java/lang/Object", null, cv -> {
+			addMethod(cv, "use", "()V", mv -> mv.visitInsn(Opcodes.RETURN));
+		}));
+		// only the version 9 User accesses Target, which moves to another package
+		classes.put("META-INF/versions/9/p/User.class", createClass(Opcodes.ACC_PUBLIC, "p/User", "java/lang/Object", null, cv -> {
+			addMethod(cv, "use", "()V", mv -> {
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, "p/Target", "m", "()V", false);
+				mv.visitInsn(Opcodes.RETURN);
+			});
+		}));
+
+		Path input = TestUtil.input(MRJ_ACCESS_INPUT_PATH);
+		writeJar(input, classes);
+		writeMappings(MRJ_ACCESS_MAPPING_PATH, "tiny\t2\t0\ta\tb", "c\tp/Target\tq/Target");
+
+		Map<Integer, Integer> checkedClasses = new HashMap<>();
+		Map<String, byte[]> output = remap(setupRemapperBuilder(MRJ_ACCESS_MAPPING_PATH)
+				.fixPackageAccess(true)
+				.metricsListener(m -> {
+					if (m.getPhase() == PhaseMetrics.Phase.FIX_PACKAGE_ACCESS) {
+						synchronized (checkedClasses) {
+							checkedClasses.put(m.getMrjVersion(), m.getClassCount());
+						}
+					}
+				})
+				.build(), input);
+
+		String target = toText(output.get("q/Target"));
+		assertTrue(target.contains("public class q/Target"), target);
+		assertTrue(target.contains("public static m()V"), target);
+
+		// Target moved itself, the default User doesn't reference anything moved
+		assertEquals(1, checkedClasses.get(ClassInstance.MRJ_DEFAULT));
+		assertEquals(1, checkedClasses.get(9));
+	}
+
+	private void assertSameOutput(UnaryOperator<TinyRemapper.Builder> option) {
+		for (String input : new String[] { BASIC_INPUT_PATH, MRJ1_INPUT_PATH, MRJ2_INPUT_PATH }) {
+			assertSameOutput(remap(setupRemapperBuilder().build(), TestUtil.input(input)),
+					remap(option.apply(setupRemapperBuilder()).build(), TestUtil.input(input)));
+		}
+
+		Path[] members = { TestUtil.input(MEMBERS_BASE_INPUT_PATH), TestUtil.input(MEMBERS_SUB_INPUT_PATH) };
+		assertSameOutput(remap(setupRemapperBuilder(MEMBERS_MAPPING_PATH).build(), members),
+				remap(option.apply(setupRemapperBuilder(MEMBERS_MAPPING_PATH)).build(), members));
+	}
+
+	private static void assertSameOutput(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		assertFalse(expected.isEmpty());
+		assertEquals(expected.keySet(), actual.keySet());
+
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			byte[] data = actual.get(entry.getKey());
+
+			assertEquals(toText(entry.getValue()), toText(data), entry.getKey());
+			assertArrayEquals(entry.getValue(), data, entry.getKey());
+		}
+	}
+
+	private static Map<String, byte[]> remap(TinyRemapper remapper, Path... inputs) {
+		Map<String, byte[]> ret = new HashMap<>();
+
+		try {
+			remapper.readInputs(inputs);
+			remapper.apply(ret::put);
+		} finally {
+			remapper.finish();
+		}
+
+		return ret;
+	}
+
+	private static Map<String, byte[]> remapMrj1(TinyRemapper remapper) {
+		Map<String, byte[]> ret = new HashMap<>();
+
+		try {
+			remapper.readInputs(TestUtil.input(MRJ1_INPUT_PATH));
+			remapper.apply(ret::put);
+		} finally {
+			remapper.finish();
+		}
+
+		return ret;
+	}
+
+	private static String toText(byte[] data) {
+		StringWriter writer = new StringWriter();
+		new ClassReader(data).accept(new TraceClassVisitor(new PrintWriter(writer)), ClassReader.EXPAND_FRAMES);
+
+		return writer.toString();
+	}
+
 	@AfterAll
 	public static void cleanup() throws IOException {
 		TestUtil.folder = null;
@@ -56,6 +56,10 @@ public class IntegrationTest2 {
 	}
 
 	private TinyRemapper setupRemapper() {
+		return setupRemapperBuilder().build();
+	}
+
+	private TinyRemapper.Builder setupRemapperBuilder() {
 		// copy from Main.java
 		final boolean ignoreFieldDesc = false;
 		final boolean propagatePrivate = false;
@@ -89,8 +93,7 @@ public class IntegrationTest2 {
 				.rebuildSourceFilenames(rebuildSourceFilenames)
 				.skipLocalVariableMapping(skipLocalVariableMapping)
 				.renameInvalidLocals(renameInvalidLocals)
-				.threads(threads)
-				.build();
+				.threads(threads);
 	}
 
 	/**
@@ -100,7 +103,20 @@ public class IntegrationTest2 {
 	 */
 	@Test
 	public void access() throws IOException {
-		final TinyRemapper remapper = setupRemapper();
+		testAccess(setupRemapper());
+	}
+
+	/**
+	 * This tests the package access fix applied after remapping, as required with pre apply visitors.
+	 *
+	 * @throws IOException io failure.
+	 */
+	@Test
+	public void accessWithPreApplyVisitor() throws IOException {
+		testAccess(setupRemapperBuilder().extraPreApplyVisitor((cls, next) -> next).build());
+	}
+
+	private void testAccess(TinyRemapper remapper) throws IOException {
 		final NonClassCopyMode ncCopyMode = NonClassCopyMode.FIX_META_INF;
 		final Path[] classpath = new Path[]{};
 
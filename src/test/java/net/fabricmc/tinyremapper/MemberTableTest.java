@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+class MemberTableTest {
+	@Test
+	public void hashMatchesId() {
+		for (boolean ignoreFieldDesc : new boolean[] { false, true }) {
+			for (MemberType type : MemberType.values()) {
+				for (String name : new String[] { "a", "method_1234", "<init>" }) {
+					for (String desc : new String[] { "()V", "(ILjava/lang/String;)Lnet/minecraft/class_1234;", "I", "[[Ljava/lang/Object;" }) {
+						assertEquals(MemberInstance.getId(type, name, desc, ignoreFieldDesc).hashCode(), MemberTable.hash(type, name, desc, ignoreFieldDesc));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void lookup() {
+		for (boolean ignoreFieldDesc : new boolean[] { false, true }) {
+			MemberTable table = new MemberTable(ignoreFieldDesc);
+			List<MemberInstance> members = new ArrayList<>();
+
+			for (int i = 0; i < 100; i++) {
+				MemberInstance method = new MemberInstance(MemberType.METHOD, null, "m"+i, "(I)V", 0, members.size());
+				MemberInstance field = new MemberInstance(MemberType.FIELD, null, "f"+i, "I", 0, members.size() + 1);
+				assertNull(table.put(method));
+				assertNull(table.put(field));
+				members.add(method);
+				members.add(field);
+			}
+
+			assertEquals(members, new ArrayList<>(table)); // insertion order
+
+			for (MemberInstance member : members) {
+				assertSame(member, table.get(MemberInstance.getId(member.type, member.name, member.desc, ignoreFieldDesc)));
+				assertSame(member, table.get(member.type, member.name, member.desc));
+			}
+
+			assertNull(table.get("m0(J)V"));
+			assertNull(table.get(MemberType.METHOD, "m0", "(J)V"));
+			assertNull(table.get("x"));
+
+			MemberInstance replacement = new MemberInstance(MemberType.METHOD, null, "m0", "(I)V", 0, 0);
+			MemberInstance duplicate = new MemberInstance(MemberType.METHOD, null, "m0", "(I)V", 0, 0);
+			assertSame(members.get(0), table.put(replacement));
+			assertSame(replacement, table.putIfAbsent(duplicate));
+			assertSame(replacement, table.get("m0(I)V"));
+			assertEquals(members.size(), table.size());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.tinyremapper.TinyRemapper.ResolveCachePolicy;
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+class ResolveCacheTest {
+	@Test
+	public void perClassEviction() {
+		TinyRemapper remapper = createRemapper(ResolveCachePolicy.PER_CLASS, 2);
+		ResolveCache cache = createCache(remapper);
+		LongAdder evictions = new LongAdder();
+		MemberInstance a = createMember("a");
+		MemberInstance b = createMember("b");
+		MemberInstance c = createMember("c");
+
+		try {
+			assertNull(cache.putIfAbsent("a", a, evictions));
+			assertNull(cache.putIfAbsent("b", b, evictions));
+			assertSame(a, cache.get("a")); // b is now the least recently used entry
+			assertNull(cache.putIfAbsent("c", c, evictions));
+
+			assertSame(a, cache.get("a"));
+			assertNull(cache.get("b"));
+			assertSame(c, cache.get("c"));
+			assertEquals(1, evictions.sum());
+
+			cache.clear();
+			assertNull(cache.get("a"));
+			assertNull(cache.get("c"));
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	@Test
+	public void globalEviction() {
+		TinyRemapper remapper = createRemapper(ResolveCachePolicy.GLOBAL, 1);
+		ResolveCache cacheA = createCache(remapper);
+		ResolveCache cacheB = createCache(remapper);
+		LongAdder evictions = new LongAdder();
+		MemberInstance a = createMember("a");
+		MemberInstance b = createMember("b");
+
+		try {
+			// the limit applies across classes
+			assertNull(cacheA.putIfAbsent("m", a, evictions));
+			assertNull(cacheB.putIfAbsent("m", b, evictions));
+
+			assertNull(cacheA.get("m"));
+			assertSame(b, cacheB.get("m"));
+			assertEquals(1, evictions.sum());
+			assertEquals(1, remapper.globalResolveCache.size());
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	@Test
+	public void globalLimit() {
+		TinyRemapper remapper = createRemapper(ResolveCachePolicy.GLOBAL, 5);
+		ResolveCache cache = createCache(remapper);
+		LongAdder evictions = new LongAdder();
+
+		try {
+			for (int i = 0; i < 100; i++) {
+				cache.putIfAbsent("m"+i, createMember("m"+i), evictions);
+			}
+
+			assertTrue(remapper.globalResolveCache.size() <= 5);
+			assertEquals(100 - remapper.globalResolveCache.size(), evictions.sum());
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	@Test
+	public void globalClear() {
+		TinyRemapper remapper = createRemapper(ResolveCachePolicy.GLOBAL, 1000);
+		ResolveCache cacheA = createCache(remapper);
+		ResolveCache cacheB = createCache(remapper);
+		LongAdder evictions = new LongAdder();
+		MemberInstance a = createMember("a");
+		MemberInstance b = createMember("b");
+
+		try {
+			assertNull(cacheA.putIfAbsent("m", a, evictions));
+			assertNull(cacheB.putIfAbsent("m", b, evictions));
+
+			cacheA.clear();
+			assertNull(cacheA.get("m"));
+			assertSame(b, cacheB.get("m"));
+
+			assertNull(cacheA.putIfAbsent("m", b, evictions));
+			assertSame(b, cacheA.get("m"));
+		} finally {
+			remapper.finish();
+		}
+	}
+
+	private static TinyRemapper createRemapper(ResolveCachePolicy policy, int maxSize) {
+		return TinyRemapper.newRemapper()
+				.resolveCache(policy, maxSize)
+				.build();
+	}
+
+	private static ResolveCache createCache(TinyRemapper remapper) {
+		ClassInstance cls = new ClassInstance(remapper, false, new InputTag[0], null, null);
+
+		return ResolveCache.create(new ClassInstance.RemapperSettings(remapper), cls);
+	}
+
+	private static MemberInstance createMember(String name) {
+		return new MemberInstance(MemberType.METHOD, null, name, "()V", 0, 0);
+	}
+}
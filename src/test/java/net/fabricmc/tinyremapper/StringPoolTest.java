@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.tinyremapper.api.TrMember.MemberType;
+
+class StringPoolTest {
+	@Test
+	public void countsReleasedOnce() {
+		LongAdder bytesSaved = new LongAdder();
+		StringPool pool = new StringPool(bytesSaved);
+		String first = new String("a/b/C");
+		String second = new String("a/b/C");
+
+		assertSame(first, pool.intern(first));
+		assertEquals(0, bytesSaved.sum()); // the first instance is retained by the pool
+
+		Set<String> released = pool.createReleasedSet();
+		assertSame(first, pool.intern(second, released));
+		long saved = bytesSaved.sum();
+		assertTrue(saved > 0);
+
+		// the same instance is only released once
+		assertSame(first, pool.intern(second, released));
+		assertEquals(saved, bytesSaved.sum());
+
+		assertSame(first, pool.intern(new String("a/b/C")));
+		assertEquals(2 * saved, bytesSaved.sum());
+	}
+
+	@Test
+	public void memberMappings() {
+		LongAdder bytesSaved = new LongAdder();
+		StringPool pool = new StringPool(bytesSaved);
+		MemberMappings mappings = new MemberMappings(true, pool);
+
+		mappings.getAcceptor(MemberType.FIELD).put(new String("a/B/f"), new String("g"));
+		mappings.getAcceptor(MemberType.FIELD).put(new String("a/C/f"), new String("g"));
+		mappings.finish();
+
+		MemberMappings.Mapping b = getMapping(mappings, "a/B", "f");
+		MemberMappings.Mapping c = getMapping(mappings, "a/C", "f");
+
+		// the id is the name when ignoring field descriptors, so both share the pooled instance
+		assertSame(b.name, b.id);
+		assertSame(b.name, c.name);
+		assertSame(c.name, c.id);
+		assertSame(b.newName, c.newName);
+		assertNotSame(b, c);
+		assertTrue(bytesSaved.sum() > 0);
+	}
+
+	private static MemberMappings.Mapping getMapping(MemberMappings mappings, String owner, String id) {
+		for (MemberMappings.OwnerMappings ownerMappings : mappings.getOwners()) {
+			if (ownerMappings.owner.equals(owner)) return ownerMappings.fields.get(id);
+		}
+
+		return null;
+	}
+}
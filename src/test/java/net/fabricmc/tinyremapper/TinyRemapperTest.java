@@ -77,7 +77,10 @@ class TinyRemapperTest {
 	}
 
 	private static int getMrjVersionFromPath(String file, String name) throws ReflectiveOperationException {
-		return (int) getMrjVersionFromPathMethod.invoke(null, Paths.get(file), name);
+		int ret = (int) getMrjVersionFromPathMethod.invoke(null, Paths.get(file), name);
+		assertEquals(ret, TinyRemapper.analyzeMrjVersion(file, name), "zip entry name based result differs");
+
+		return ret;
 	}
 
 	private static final Method getMrjVersionFromPathMethod;
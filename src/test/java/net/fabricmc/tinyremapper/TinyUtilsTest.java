@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, 2018, Player, asie
+ * Copyright (c) 2021, FabricMC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.fabricmc.tinyremapper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TinyUtilsTest {
+	private static final String YARN_PATH = "/mapping/yarn-1.17+build.9-v2.tiny.gz";
+
+	@TempDir
+	static Path folder;
+
+	@BeforeAll
+	public static void setup() throws IOException {
+		TestUtil.folder = folder;
+		TestUtil.copyFile(TinyUtilsTest.class, YARN_PATH);
+	}
+
+	@Test
+	public void parallelParsing() throws IOException {
+		Path mappings = TestUtil.input(YARN_PATH);
+
+		// far larger than the minimum parallel chunk size, so the body gets split into many chunks
+		try (InputStream is = new GZIPInputStream(Files.newInputStream(mappings))) {
+			long size = 0;
+			byte[] buffer = new byte[8192];
+			int len;
+
+			while ((len = is.read(buffer)) >= 0) {
+				size += len;
+			}
+
+			assertTrue(size > 1 << 20);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			// primary source namespace and one requiring the descriptors to be fixed up afterwards
+			assertFalse(compare(mappings, "intermediary", "named", executor).localMap.isEmpty());
+			compare(mappings, "named", "intermediary", executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static Tables compare(Path mappings, String fromM, String toM, ExecutorService executor) {
+		Tables sequential = new Tables(TinyUtils.createTinyMappingProvider(mappings, fromM, toM), null);
+		Tables parallel = new Tables(TinyUtils.createTinyMappingProvider(mappings, fromM, toM), executor);
+
+		assertFalse(sequential.methodMap.isEmpty());
+		assertEquals(sequential.classMap, parallel.classMap);
+		assertEquals(sequential.fieldMap, parallel.fieldMap);
+		assertEquals(sequential.methodMap, parallel.methodMap);
+		assertEquals(sequential.localMap.keySet(), parallel.localMap.keySet());
+
+		for (Map.Entry<String, String[]> entry : sequential.localMap.entrySet()) {
+			assertArrayEquals(entry.getValue(), parallel.localMap.get(entry.getKey()), entry.getKey());
+		}
+
+		return sequential;
+	}
+
+	private static final class Tables {
+		Tables(IMappingProvider provider, ExecutorService executor) {
+			provider.load(classMap, fieldMap, methodMap, localMap, executor);
+		}
+
+		final Map<String, String> classMap = new HashMap<>();
+		final Map<String, String> fieldMap = new HashMap<>();
+		final Map<String, String> methodMap = new HashMap<>();
+		final Map<String, String[]> localMap = new HashMap<>();
+	}
+}